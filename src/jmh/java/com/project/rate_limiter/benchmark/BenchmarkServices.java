@@ -0,0 +1,64 @@
+package com.project.rate_limiter.benchmark;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.service.CompositeRateLimiterService;
+import com.project.rate_limiter.service.FixedSizeRateLimiterService;
+import com.project.rate_limiter.service.GcraRateLimiterService;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.service.SlidingWindowCounterRateLimiterService;
+import com.project.rate_limiter.service.SlidingWindowRateLimiterService;
+import com.project.rate_limiter.service.TokenBucketRateLimiterService;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+/**
+ * Builds the in-memory services outside of Spring, sized for a given key cardinality.
+ */
+final class BenchmarkServices {
+	
+	static final long WINDOW_MS = 60_000L;
+	static final CoarseClock CLOCK = new CoarseClock(1);
+	
+	private BenchmarkServices() {}
+	
+	static KeyStateStoreRegistry stores(StoreMode mode, int keys) {
+		int slots = Integer.highestOneBit(Math.max(1, keys)) << 2;
+		return new KeyStateStoreRegistry(mode, Math.max(1_000, keys * 2), 5, 10_000, Math.max(1 << 12, slots), 64, "");
+	}
+	
+	static RateLimiterService create(RateLimiterAlgorithm algorithm, KeyStateStoreRegistry stores, int limit) {
+		RateLimiterService service = switch(algorithm) {
+			case TOKEN_BUCKET -> new TokenBucketRateLimiterService(stores, CLOCK);
+			case FIXED_WINDOW -> new FixedSizeRateLimiterService(stores, CLOCK);
+			case SLIDING_WINDOW -> new SlidingWindowRateLimiterService(stores, CLOCK);
+			case SLIDING_WINDOW_COUNTER -> new SlidingWindowCounterRateLimiterService(stores, CLOCK);
+			case GCRA -> new GcraRateLimiterService(stores, CLOCK);
+			case COMPOSITE -> new CompositeRateLimiterService(stores, CLOCK, 
+					Math.max(1, limit / 60) + "/1000," + limit + "/" + WINDOW_MS);
+		};
+		
+		switch(algorithm) {
+			case COMPOSITE -> {}
+			case TOKEN_BUCKET, GCRA -> {
+				ReflectionTestUtils.setField(service, "CAPACITY", limit);
+				ReflectionTestUtils.setField(service, "REFILL_RATE_PER_SECOND", Math.max(1, limit / 60));
+			}
+			default -> {
+				ReflectionTestUtils.setField(service, "REQUEST_LIMIT", limit);
+				ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", WINDOW_MS);
+			}
+		}
+		return service;
+	}
+	
+	static String[] keys(int count) {
+		String[] keys = new String[count];
+		for(int i=0; i<count; i++) {
+			keys[i] = "user-" + i;
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,65 @@
+package com.project.rate_limiter.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.store.StoreMode;
+
+/**
+ * decision() and the allocation-free decide() of every algorithm across key cardinality, limit size and store mode.
+ * Thread count is set per run with -t; throughput and SampleTime percentiles are both reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DecisionBenchmark {
+	
+	@Param({"TOKEN_BUCKET", "FIXED_WINDOW", "SLIDING_WINDOW", "SLIDING_WINDOW_COUNTER", "GCRA", "COMPOSITE"})
+	public RateLimiterAlgorithm algorithm;
+	
+	@Param({"1", "1000", "1000000", "10000000"})
+	public int keys;
+	
+	@Param({"10", "10000"})
+	public int limit;
+	
+	@Param({"HEAP"})
+	public StoreMode storeMode;
+	
+	private RateLimiterService service;
+	private String[] keyNames;
+	
+	@Setup
+	public void setup() {
+		service = BenchmarkServices.create(algorithm, BenchmarkServices.stores(storeMode, keys), limit);
+		keyNames = BenchmarkServices.keys(keys);
+	}
+	
+	@Benchmark
+	public RateLimiterDecision decision(KeyCursor cursor) {
+		return service.decision(keyNames[cursor.next(keys)]);
+	}
+	
+	@Benchmark
+	public DecisionResult decide(KeyCursor cursor) {
+		return service.decide(keyNames[cursor.next(keys)], cursor.result);
+	}
+}
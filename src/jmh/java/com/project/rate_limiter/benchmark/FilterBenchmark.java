@@ -0,0 +1,98 @@
+package com.project.rate_limiter.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.rate_limiter.cluster.ClusterRouter;
+import com.project.rate_limiter.cluster.GossipCounters;
+import com.project.rate_limiter.concurrency.AdaptiveConcurrencyLimiter;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.filter.RateLimiterFilter;
+import com.project.rate_limiter.monitoring.DecisionMetrics;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.shaping.TrafficShaper;
+import com.project.rate_limiter.sketch.HeavyHitterGate;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+import jakarta.servlet.ServletException;
+
+/**
+ * End-to-end pass through RateLimiterFilter with mock requests, headers included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FilterBenchmark {
+	
+	@Param({"TOKEN_BUCKET", "FIXED_WINDOW", "SLIDING_WINDOW", "SLIDING_WINDOW_COUNTER", "GCRA", "COMPOSITE"})
+	public RateLimiterAlgorithm algorithm;
+	
+	@Param({"1", "100000"})
+	public int keys;
+	
+	@Param({"10", "10000"})
+	public int limit;
+	
+	@Param({"true", "false"})
+	public boolean metrics;
+	
+	// whether the Count-Min tier answers light keys before the exact limiter
+	@Param({"false", "true"})
+	public boolean sketch;
+	
+	private RateLimiterFilter filter;
+	private String[] keyNames;
+	
+	@Setup
+	public void setup() {
+		KeyStateStoreRegistry stores = BenchmarkServices.stores(StoreMode.HEAP, keys);
+		List<RateLimiterService> services = new ArrayList<>();
+		for(RateLimiterAlgorithm each: RateLimiterAlgorithm.values()) {
+			services.add(BenchmarkServices.create(each, stores, limit));
+		}
+		filter = new RateLimiterFilter(services, new DecisionMetrics(metrics, 16, 32, stores), 
+				new PolicyEngine("", new ObjectMapper(), services), 
+				new HeavyHitterGate(sketch, 2, 60_000L, 65_536, 4, 32, BenchmarkServices.CLOCK), 
+				new ClusterRouter("", "", ClusterRouter.Mode.PARTITIONED, 128, 200L, 5_000L, BenchmarkServices.CLOCK, 
+						new GossipCounters("", "", stores)), 
+				new AdaptiveConcurrencyLimiter(false, false, AdaptiveConcurrencyLimiter.Strategy.GRADIENT, 20, 4, 1000, 250L, 0.9, 2.0), 
+				new TrafficShaper(false, 1_000L, 10_000, 10L, 512));
+		ReflectionTestUtils.setField(filter, "REQUEST_LIMIT", limit);
+		keyNames = BenchmarkServices.keys(keys);
+	}
+	
+	@Benchmark
+	public int doFilter(KeyCursor cursor) throws ServletException, IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/limiter/api/check");
+		request.addHeader("X-RateLimit-Alg", algorithm.name());
+		request.addHeader("X-User-Id", keyNames[cursor.next(keys)]);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+}
@@ -0,0 +1,23 @@
+package com.project.rate_limiter.benchmark;
+
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.project.rate_limiter.entity.DecisionResult;
+
+/**
+ * Per-thread pseudo random walk over the key space, cheap enough not to show up in the numbers,
+ * plus the thread's reusable decision result.
+ */
+@State(Scope.Thread)
+public class KeyCursor {
+	
+	private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+	final DecisionResult result = new DecisionResult();
+	
+	int next(int keys) {
+		return keys == 1 ? 0 : random.nextInt(keys);
+	}
+}
@@ -0,0 +1,20 @@
+package com.project.rate_limiter.bench;
+
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+/**
+ * One load generator run. Without a url the requests go to a private in-process limiter built
+ * from the policy; with one they go to that endpoint, which is expected to enforce the same
+ * policy for the expected rate to be meaningful. distribution is UNIFORM or ZIPFIAN, skew only
+ * applies to the latter.
+ */
+public record BenchPlan(
+		RateLimitPolicy policy,
+		String url,
+		int threads,
+		long durationMs,
+		int keys,
+		String distribution,
+		double skew,
+		long seed
+) {}
@@ -0,0 +1,25 @@
+package com.project.rate_limiter.bench;
+
+/**
+ * Outcome of a load generator run. Latencies are per request as seen by the caller, expected
+ * is what an exact limiter would admit for the traffic each key received, and drift is the
+ * relative difference of the admitted rate to it: positive means the limiter let too much through.
+ */
+public record BenchReport(
+		String target,
+		String algorithm,
+		String distribution,
+		int threads,
+		int keys,
+		long durationMs,
+		long requests,
+		long admitted,
+		long errors,
+		double throughputPerSecond,
+		double p50Micros,
+		double p99Micros,
+		double p999Micros,
+		double admittedPerSecond,
+		double expectedPerSecond,
+		double drift
+) {}
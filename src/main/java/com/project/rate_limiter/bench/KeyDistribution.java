@@ -0,0 +1,44 @@
+package com.project.rate_limiter.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks the index of the key a request is sent for, out of a fixed key space.
+ */
+@FunctionalInterface
+public interface KeyDistribution {
+
+	int next(SplittableRandom random);
+
+	static KeyDistribution uniform(int keys) {
+		return random -> random.nextInt(keys);
+	}
+
+	// Gray et al. "Quickly generating billion-record synthetic databases": key 0 is the most
+	// frequent and key i is drawn with probability proportional to 1 / (i+1)^skew
+	static KeyDistribution zipfian(int keys, double skew) {
+		if(!(skew > 0 && skew < 1)) {
+			throw new IllegalArgumentException("Zipfian skew must be between 0 and 1 exclusive");
+		}
+		double zetaN = 0;
+		for(int i=1; i<=keys; i++) {
+			zetaN += 1.0 / Math.pow(i, skew);
+		}
+		double alpha = 1.0 / (1.0 - skew);
+		double halfPowSkew = Math.pow(0.5, skew);
+		double eta = (1.0 - Math.pow(2.0 / keys, 1.0 - skew)) / (1.0 - (1.0 + halfPowSkew) / zetaN);
+		double zeta = zetaN;
+
+		return random -> {
+			double u = random.nextDouble();
+			double uz = u * zeta;
+			if(uz < 1.0) {
+				return 0;
+			}
+			if(uz < 1.0 + halfPowSkew) {
+				return Math.min(1, keys - 1);
+			}
+			return Math.min(keys - 1, (int) (keys * Math.pow(eta * u - eta + 1.0, alpha)));
+		};
+	}
+}
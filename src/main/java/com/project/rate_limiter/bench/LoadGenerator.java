@@ -0,0 +1,212 @@
+package com.project.rate_limiter.bench;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.monitoring.LatencyHistogram;
+import com.project.rate_limiter.policy.LimitComponent;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.simulation.Limiters;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+/**
+ * Closed loop load generator: every thread sends its next request as soon as the previous one
+ * is decided, for the planned duration and on keys picked from the planned distribution. Keys
+ * are fresh for every run, so runs do not see each other's state.
+ */
+@Service
+public class LoadGenerator {
+
+	private final CoarseClock clock;
+	private final RestTemplate restTemplate;
+
+	@Value("${rate.bench.max.threads:64}")
+	private int MAX_THREADS;
+
+	@Value("${rate.bench.max.duration.ms:60000}")
+	private long MAX_DURATION_MS;
+
+	@Value("${rate.bench.max.keys:1000000}")
+	private int MAX_KEYS;
+
+	public LoadGenerator(CoarseClock clock, RestTemplate restTemplate) {
+		this.clock = clock;
+		this.restTemplate = restTemplate;
+	}
+
+	@FunctionalInterface
+	private interface Target {
+		// HTTP status of the decision, 0 when the request failed
+		int send(String key, DecisionResult result);
+	}
+
+	public BenchReport run(BenchPlan plan) throws InterruptedException {
+		if(plan.threads() < 1 || plan.threads() > MAX_THREADS) {
+			throw new IllegalArgumentException("Threads must be between 1 and " + MAX_THREADS);
+		}
+		if(plan.durationMs() < 1 || plan.durationMs() > MAX_DURATION_MS) {
+			throw new IllegalArgumentException("Duration must be between 1 and " + MAX_DURATION_MS + " ms");
+		}
+		if(plan.keys() < 1 || plan.keys() > MAX_KEYS) {
+			throw new IllegalArgumentException("Keys must be between 1 and " + MAX_KEYS);
+		}
+
+		KeyDistribution distribution = distribution(plan);
+		Target target = target(plan);
+		String[] keys = new String[plan.keys()];
+		String prefix = "bench-" + Long.toHexString(System.nanoTime()) + "-";
+		for(int i=0; i<keys.length; i++) {
+			keys[i] = prefix + i;
+		}
+
+		AtomicIntegerArray offered = new AtomicIntegerArray(keys.length);
+		LatencyHistogram latencies = new LatencyHistogram();
+		long[][] counts = new long[plan.threads()][3];
+		SplittableRandom seeds = new SplittableRandom(plan.seed());
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[plan.threads()];
+
+		for(int t=0; t<workers.length; t++) {
+			SplittableRandom random = seeds.split();
+			long[] count = counts[t];
+			workers[t] = new Thread(() -> {
+				DecisionResult result = new DecisionResult();
+				try {
+					start.await();
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				long deadline = System.nanoTime() + plan.durationMs() * 1_000_000L;
+				while(true) {
+					long sent = System.nanoTime();
+					if(sent >= deadline) {
+						return;
+					}
+					int index = distribution.next(random);
+					offered.incrementAndGet(index);
+					int status = target.send(keys[index], result);
+					latencies.record(System.nanoTime() - sent);
+
+					count[0]++;
+					if(status >= 200 && status < 300) {
+						count[1]++;
+					} else if(status != 429) {
+						count[2]++;
+					}
+				}
+			}, "bench-" + t);
+			workers[t].start();
+		}
+
+		long started = System.nanoTime();
+		start.countDown();
+		for(Thread worker: workers) {
+			worker.join();
+		}
+		long elapsedNanos = System.nanoTime() - started;
+
+		long requests = 0;
+		long admitted = 0;
+		long errors = 0;
+		for(long[] count: counts) {
+			requests += count[0];
+			admitted += count[1];
+			errors += count[2];
+		}
+
+		double allowance = allowance(plan.policy(), elapsedNanos / 1_000_000.0);
+		double expected = 0;
+		for(int i=0; i<keys.length; i++) {
+			expected += Math.min(offered.get(i), allowance);
+		}
+
+		double seconds = elapsedNanos / 1_000_000_000.0;
+		return new BenchReport(plan.url() == null ? "IN_PROCESS" : plan.url(),
+				plan.policy().algorithm().name(), distributionName(plan),
+				plan.threads(), plan.keys(), elapsedNanos / 1_000_000L,
+				requests, admitted, errors, requests / seconds,
+				latencies.percentile(0.50) / 1000.0,
+				latencies.percentile(0.99) / 1000.0,
+				latencies.percentile(0.999) / 1000.0,
+				admitted / seconds, expected / seconds,
+				expected == 0 ? 0 : (admitted - expected) / expected);
+	}
+
+	private Target target(BenchPlan plan) {
+		if(plan.url() == null) {
+			RateLimitPolicy policy = plan.policy();
+			RateLimiterService service = Limiters.create(policy.algorithm(),
+					new KeyStateStoreRegistry(StoreMode.HEAP, plan.keys(), 5, 10_000, 0, 0, ""), clock);
+			return (key, result) -> service.decide(key, clock.millis(), 1, policy, result).isAllowed() ? 200 : 429;
+		}
+
+		String algorithm = plan.policy().algorithm().name();
+		return (key, result) -> {
+			HttpHeaders headers = new HttpHeaders();
+			headers.set("X-RateLimit-Alg", algorithm);
+			headers.set("X-User-Id", key);
+			try {
+				return restTemplate.exchange(plan.url(), HttpMethod.GET, new HttpEntity<>(headers), String.class)
+						.getStatusCode().value();
+			} catch(HttpStatusCodeException ex) {
+				return ex.getStatusCode().value();
+			} catch(Exception ex) {
+				return 0;
+			}
+		};
+	}
+
+	// what an exact limiter admits for one key that is busy for the whole run
+	static double allowance(RateLimitPolicy policy, double durationMs) {
+		return switch(policy.algorithm()) {
+			case TOKEN_BUCKET, GCRA -> bucket(policy.limit(), policy.refillRatePerSecond(), durationMs);
+			case FIXED_WINDOW, SLIDING_WINDOW, SLIDING_WINDOW_COUNTER -> window(policy.limit(), policy.windowMs(), durationMs);
+			case COMPOSITE -> policy.components().stream()
+					.mapToDouble(component -> allowance(component, durationMs))
+					.min()
+					.orElse(0);
+		};
+	}
+
+	private static double allowance(LimitComponent component, double durationMs) {
+		return component.windowMs() > 0
+				? window(component.limit(), component.windowMs(), durationMs)
+				: bucket(component.limit(), component.refillRate(), durationMs);
+	}
+
+	private static double bucket(int capacity, int refillRate, double durationMs) {
+		return capacity + refillRate * durationMs / 1000.0;
+	}
+
+	private static double window(int limit, long windowMs, double durationMs) {
+		return limit * Math.ceil(durationMs / windowMs);
+	}
+
+	private static KeyDistribution distribution(BenchPlan plan) {
+		return switch(distributionName(plan)) {
+			case "UNIFORM" -> KeyDistribution.uniform(plan.keys());
+			case "ZIPFIAN" -> KeyDistribution.zipfian(plan.keys(), plan.skew());
+			default -> throw new IllegalArgumentException(
+					"Distribution must be UNIFORM or ZIPFIAN but was " + plan.distribution());
+		};
+	}
+
+	private static String distributionName(BenchPlan plan) {
+		return plan.distribution() == null ? "UNIFORM" : plan.distribution().trim().toUpperCase(Locale.ROOT);
+	}
+}
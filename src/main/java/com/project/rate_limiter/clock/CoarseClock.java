@@ -0,0 +1,58 @@
+package com.project.rate_limiter.clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Millisecond clock shared by the in-memory services. A daemon thread publishes the time
+ * every rate.clock.tick.ms, so reads are a single volatile load with no allocation.
+ * Time is the wall clock at startup advanced by System.nanoTime, so it never goes backwards.
+ * A tick of 0 disables the thread and computes the time on every read instead.
+ */
+@Component
+public class CoarseClock implements DisposableBean {
+	
+	private final long originMillis = System.currentTimeMillis();
+	private final long originNanos = System.nanoTime();
+	private final Thread ticker;
+	private volatile long millis;
+	private volatile boolean running = true;
+	
+	public CoarseClock(@Value("${rate.clock.tick.ms:1}") long tickMs) {
+		this.millis = read();
+		if(tickMs <= 0) {
+			this.ticker = null;
+			return;
+		}
+		
+		long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+		this.ticker = new Thread(() -> {
+			while(running) {
+				millis = read();
+				LockSupport.parkNanos(tickNanos);
+			}
+		}, "rate-limiter-clock");
+		this.ticker.setDaemon(true);
+		this.ticker.start();
+	}
+	
+	public long millis() {
+		return ticker == null ? read() : millis;
+	}
+	
+	private long read() {
+		return originMillis + (System.nanoTime() - originNanos) / 1_000_000L;
+	}
+	
+	@Override
+	public void destroy() {
+		running = false;
+		if(ticker != null) {
+			LockSupport.unpark(ticker);
+		}
+	}
+}
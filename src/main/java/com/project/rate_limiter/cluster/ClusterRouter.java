@@ -0,0 +1,195 @@
+package com.project.rate_limiter.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.RateLimiterService;
+
+/**
+ * Partitions keys over the nodes of rate.cluster.nodes with a consistent hash ring, so every
+ * key has exactly one node holding its state. Keys owned by this node are decided locally,
+ * the others are forwarded to their owner. A peer that cannot be reached leaves the ring and
+ * its keys move to the remaining nodes until it is retried after rate.cluster.retry.ms.
+ * Without nodes every key is decided locally.
+ * <p>
+ * In GOSSIP mode FIXED_WINDOW and SLIDING_WINDOW_COUNTER are never forwarded: every node
+ * decides them against its replicated {@link GossipCounters}, sending its own counts to the
+ * peers every rate.cluster.gossip.interval.ms. Other algorithms stay partitioned.
+ */
+@Component
+public class ClusterRouter implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(ClusterRouter.class);
+	
+	private static final int DELTAS_PER_FRAME = 1024;
+	
+	public enum Mode { PARTITIONED, GOSSIP }
+
+	private final String self;
+	private final Mode mode;
+	private final GossipCounters gossip;
+	private final List<String> members;
+	private final int virtualNodes;
+	private final CoarseClock clock;
+	private final Map<String, PeerClient> peers = new ConcurrentHashMap<>();
+	// peers out of the ring and when to retry them
+	private final Map<String, Long> down = new ConcurrentHashMap<>();
+	private final long retryMs;
+
+	private volatile HashRing ring;
+
+	public ClusterRouter(@Value("${rate.cluster.nodes:}") String nodes,
+			@Value("${rate.cluster.self:}") String self,
+			@Value("${rate.cluster.mode:PARTITIONED}") Mode mode,
+			@Value("${rate.cluster.virtual.nodes:128}") int virtualNodes,
+			@Value("${rate.cluster.timeout.ms:200}") long timeoutMs,
+			@Value("${rate.cluster.retry.ms:5000}") long retryMs,
+			CoarseClock clock, GossipCounters gossip) {
+		this.self = self.trim();
+		this.mode = mode;
+		this.gossip = gossip;
+		this.members = members(nodes);
+		this.virtualNodes = virtualNodes;
+		this.retryMs = retryMs;
+		this.clock = clock;
+
+		if(!members.isEmpty()) {
+			if(!members.contains(this.self)) {
+				throw new IllegalArgumentException("rate.cluster.self " + self + " is not one of rate.cluster.nodes " + nodes);
+			}
+			for(String member: members) {
+				PeerProtocol.address(member);
+				if(!member.equals(this.self)) {
+					peers.put(member, new PeerClient(member, timeoutMs));
+				}
+			}
+		}
+		this.ring = new HashRing(members, virtualNodes);
+	}
+
+	static List<String> members(String nodes) {
+		return Arrays.stream(nodes.split(",")).map(String::trim).filter(node -> !node.isEmpty()).distinct().toList();
+	}
+	
+	public boolean enabled() {
+		return !members.isEmpty();
+	}
+
+	// every configured node, live or not
+	public List<String> nodes() {
+		return members;
+	}
+	
+	public String self() {
+		return self;
+	}
+
+	// the node currently holding the key's state, null when clustering is off
+	public String owner(String key) {
+		return enabled() ? ring.owner(key) : null;
+	}
+
+	// whether the key's state is the local service's own, so this node alone can decide and refund it
+	public boolean decidesLocally(RateLimiterAlgorithm algorithm, String key) {
+		if(!enabled()) {
+			return true;
+		}
+		return !(mode == Mode.GOSSIP && gossiped(algorithm)) && ring.owner(key).equals(self);
+	}
+
+	public List<String> liveNodes() {
+		return ring.nodes();
+	}
+
+	public DecisionResult decide(RateLimiterService service, String key, int cost, RateLimitPolicy policy, DecisionResult result) {
+		if(!enabled()) {
+			return decideLocally(service, key, cost, policy, result);
+		}
+		if(mode == Mode.GOSSIP && gossiped(service.algorithm())) {
+			return gossip.decide(service.algorithm(), key, clock.millis(), cost, policy, result);
+		}
+		String owner = ring.owner(key);
+		if(owner.equals(self)) {
+			return decideLocally(service, key, cost, policy, result);
+		}
+		try {
+			return peers.get(owner).decide(service.algorithm(), key, cost, policy, result);
+		} catch(IOException ex) {
+			markDown(owner, ex);
+			return decide(service, key, cost, policy, result);
+		}
+	}
+
+	public DecisionResult decideLocally(RateLimiterService service, String key, int cost, RateLimitPolicy policy, DecisionResult result) {
+		// the service picks the time, so Redis keys only ever see the Redis server clock
+		return policy == null ? service.decide(key, cost, result) : service.decide(key, cost, policy, result);
+	}
+
+	private static boolean gossiped(RateLimiterAlgorithm algorithm) {
+		return algorithm == RateLimiterAlgorithm.FIXED_WINDOW || algorithm == RateLimiterAlgorithm.SLIDING_WINDOW_COUNTER;
+	}
+	
+	// the overshoot of a gossiped limit grows with this interval: it is what the other nodes admit in it
+	@Scheduled(fixedDelayString = "${rate.cluster.gossip.interval.ms:50}")
+	public void gossip() {
+		if(mode != Mode.GOSSIP || !enabled()) {
+			return;
+		}
+		List<GossipCounters.Delta> deltas;
+		while(!(deltas = gossip.drain(DELTAS_PER_FRAME)).isEmpty()) {
+			for(Map.Entry<String, PeerClient> peer: peers.entrySet()) {
+				if(down.containsKey(peer.getKey())) {
+					continue;
+				}
+				try {
+					peer.getValue().gossip(gossip.slot(), deltas);
+				} catch(IOException ex) {
+					markDown(peer.getKey(), ex);
+				}
+			}
+		}
+	}
+	
+	private synchronized void markDown(String node, IOException cause) {
+		if(down.putIfAbsent(node, System.currentTimeMillis() + retryMs) == null) {
+			log.warn("Peer {} left the ring: {}", node, cause.getMessage());
+			rebuild();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${rate.cluster.retry.ms:5000}")
+	public synchronized void retryDownPeers() {
+		long now = System.currentTimeMillis();
+		if(down.values().removeIf(retryAt -> retryAt <= now)) {
+			rebuild();
+		}
+	}
+
+	// caller holds the lock
+	private void rebuild() {
+		List<String> live = new ArrayList<>(members);
+		live.removeAll(down.keySet());
+		ring = new HashRing(live, virtualNodes);
+		log.info("Cluster ring now has {}", live);
+	}
+
+	@Override
+	public void destroy() {
+		peers.values().forEach(PeerClient::close);
+	}
+}
@@ -0,0 +1,175 @@
+package com.project.rate_limiter.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.SlidingWindowCounterRateLimiterService;
+import com.project.rate_limiter.store.KeyStateStore;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+
+/**
+ * Window counters replicated between nodes as grow-only counters: per key and window every
+ * node only increments its own slot and merges the others' by taking the maximum, so deltas
+ * can arrive late, twice or out of order. Windows are aligned to the epoch so that all nodes
+ * agree on them. A node admits against the sum of all slots as far as it has heard of them,
+ * which lets each node overshoot by what the others admitted since their last gossip.
+ */
+@Component
+public class GossipCounters {
+
+	@Value("${rate.request.limit.count}")
+	private int REQUEST_LIMIT;
+
+	@Value("${rate.request.limit.timeperiod}")
+	private long TIME_WINDOW_MS;
+
+	private final int slot;
+	private final int slots;
+	private final KeyStateStore<Counts> counts;
+	private final Queue<Counts> dirty = new ConcurrentLinkedQueue<>();
+
+	record Delta(String key, long windowMs, long window, long current, long previous) {}
+
+	static final class Counts {
+
+		private String key;
+		private long windowMs;
+		private long window;
+		private long[] current;
+		private long[] previous;
+		private boolean dirty;
+
+		private Counts(int slots) {
+			this.current = new long[slots];
+			this.previous = new long[slots];
+		}
+
+		// caller holds the monitor
+		private void advance(long to) {
+			if(to <= window) {
+				return;
+			}
+			if(to == window + 1) {
+				long[] recycled = previous;
+				previous = current;
+				current = recycled;
+				Arrays.fill(current, 0);
+			} else {
+				Arrays.fill(current, 0);
+				Arrays.fill(previous, 0);
+			}
+			window = to;
+		}
+
+		private long fullAt() {
+			return (window + 2) * windowMs;
+		}
+	}
+
+	public GossipCounters(@Value("${rate.cluster.nodes:}") String nodes,
+			@Value("${rate.cluster.self:}") String self,
+			KeyStateStoreRegistry stores) {
+		List<String> members = ClusterRouter.members(nodes);
+		this.slots = Math.max(1, members.size());
+		this.slot = Math.max(0, members.indexOf(self.trim()));
+		this.counts = stores.create("gossip", currentTime -> new Counts(slots), (state, currentTime) -> state.fullAt());
+	}
+
+	public DecisionResult decide(RateLimiterAlgorithm algorithm, String user, long currentTime, int cost,
+			RateLimitPolicy policy, DecisionResult result) {
+		int limit = policy == null ? REQUEST_LIMIT : policy.limit();
+		long windowMs = policy == null ? TIME_WINDOW_MS : policy.windowMs();
+		String key = scope(algorithm, policy, user);
+		Counts state = counts.get(key, currentTime);
+		long windowIndex = currentTime / windowMs;
+		long elapsed = currentTime - windowIndex * windowMs;
+
+		synchronized(state) {
+			init(state, key, windowMs, windowIndex);
+			state.advance(windowIndex);
+			long current = sum(state.current);
+			long previous = algorithm == RateLimiterAlgorithm.SLIDING_WINDOW_COUNTER ? sum(state.previous) : 0;
+			double used = current + previous * (double) (windowMs - elapsed) / windowMs;
+
+			if(used + cost <= limit) {
+				state.current[slot] += cost;
+				if(cost > 0 && !state.dirty) {
+					state.dirty = true;
+					dirty.add(state);
+				}
+				return result.set(true, (int) (limit - used - cost), 0L, windowMs - elapsed + (previous > 0 ? windowMs : 0));
+			}
+
+			long retryAfterMs = previous == 0
+					? windowMs - elapsed
+					: SlidingWindowCounterRateLimiterService.retryAfterMs((int) previous, (int) current, elapsed, cost, limit, windowMs);
+			return result.set(false, (int) Math.max(0, limit - used), retryAfterMs, retryAfterMs);
+		}
+	}
+
+	// own slots changed since the last call, at most max of them
+	List<Delta> drain(int max) {
+		List<Delta> deltas = new ArrayList<>();
+		Counts state;
+		while(deltas.size() < max && (state = dirty.poll()) != null) {
+			synchronized(state) {
+				state.dirty = false;
+				deltas.add(new Delta(state.key, state.windowMs, state.window, state.current[slot], state.previous[slot]));
+			}
+		}
+		return deltas;
+	}
+
+	void merge(int from, Delta delta, long currentTime) {
+		if(from < 0 || from >= slots || from == slot || delta.windowMs() < 1) {
+			return;
+		}
+		Counts state = counts.get(delta.key(), currentTime);
+		synchronized(state) {
+			init(state, delta.key(), delta.windowMs(), delta.window());
+			state.advance(Math.max(currentTime / delta.windowMs(), delta.window()));
+			if(delta.window() == state.window) {
+				state.current[from] = Math.max(state.current[from], delta.current());
+				state.previous[from] = Math.max(state.previous[from], delta.previous());
+			} else if(delta.window() == state.window - 1) {
+				state.previous[from] = Math.max(state.previous[from], delta.current());
+			}
+		}
+	}
+
+	int slot() {
+		return slot;
+	}
+
+	// caller holds the monitor; a policy change of window length starts the key over
+	private static void init(Counts state, String key, long windowMs, long windowIndex) {
+		if(state.key == null || state.windowMs != windowMs) {
+			state.key = key;
+			state.windowMs = windowMs;
+			state.window = windowIndex;
+			Arrays.fill(state.current, 0);
+			Arrays.fill(state.previous, 0);
+		}
+	}
+
+	private static String scope(RateLimiterAlgorithm algorithm, RateLimitPolicy policy, String user) {
+		return policy == null ? algorithm.name() + "|" + user : algorithm.name() + ":" + policy.name() + "|" + user;
+	}
+
+	private static long sum(long[] values) {
+		long sum = 0;
+		for(long value: values) {
+			sum += value;
+		}
+		return sum;
+	}
+}
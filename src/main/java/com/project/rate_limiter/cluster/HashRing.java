@@ -0,0 +1,68 @@
+package com.project.rate_limiter.cluster;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring over node names, with virtualNodes points per node so that slices are
+ * even and a node joining or leaving only moves the keys of its own slices. Hashes are FNV-1a
+ * over the UTF-16 code units and identical on every JVM, so all nodes agree on the owner of a key.
+ */
+final class HashRing {
+	
+	private final long[] points;
+	private final String[] owners;
+	private final List<String> nodes;
+	
+	HashRing(List<String> nodes, int virtualNodes) {
+		this.nodes = List.copyOf(nodes);
+		int size = nodes.size() * virtualNodes;
+		long[][] entries = new long[size][2];
+		for(int n=0; n<nodes.size(); n++) {
+			for(int v=0; v<virtualNodes; v++) {
+				entries[n * virtualNodes + v][0] = hash(nodes.get(n) + "#" + v);
+				entries[n * virtualNodes + v][1] = n;
+			}
+		}
+		Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+		
+		this.points = new long[size];
+		this.owners = new String[size];
+		for(int i=0; i<size; i++) {
+			points[i] = entries[i][0];
+			owners[i] = nodes.get((int) entries[i][1]);
+		}
+	}
+	
+	List<String> nodes() {
+		return nodes;
+	}
+	
+	// the first point at or after the key's hash, wrapping around; null on an empty ring
+	String owner(String key) {
+		if(points.length == 0) {
+			return null;
+		}
+		int index = Arrays.binarySearch(points, hash(key));
+		if(index < 0) {
+			index = -index - 1;
+		}
+		return owners[index == points.length ? 0 : index];
+	}
+	
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for(int i=0; i<value.length(); i++) {
+			char each = value.charAt(i);
+			hash ^= each & 0xff;
+			hash *= 0x100000001b3L;
+			hash ^= each >>> 8;
+			hash *= 0x100000001b3L;
+		}
+		// FNV alone clusters similar strings, the finalizer spreads them over the ring
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,172 @@
+package com.project.rate_limiter.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+/**
+ * One pipelined connection to a peer: callers write their request under the lock and wait for
+ * the response, which a reader thread matches to them by id. The connection is opened on first
+ * use and again after it fails.
+ */
+final class PeerClient implements Closeable {
+
+	private final String node;
+	private final long timeoutMs;
+	private final AtomicLong ids = new AtomicLong();
+	private final Map<Long, CompletableFuture<DecisionResult>> pending = new ConcurrentHashMap<>();
+
+	// a lock rather than the monitor, as writers block on the socket; guards the fields below
+	private final ReentrantLock lock = new ReentrantLock();
+	private Socket socket;
+	private DataOutputStream out;
+
+	PeerClient(String node, long timeoutMs) {
+		this.node = node;
+		this.timeoutMs = timeoutMs;
+	}
+
+	DecisionResult decide(RateLimiterAlgorithm algorithm, String key, int cost, RateLimitPolicy policy,
+			DecisionResult result) throws IOException {
+		long id = ids.incrementAndGet();
+		CompletableFuture<DecisionResult> response = new CompletableFuture<>();
+		pending.put(id, response);
+		try {
+			lock.lock();
+			try {
+				DataOutputStream stream = connect();
+				try {
+					PeerProtocol.writeRequest(stream, id, algorithm, cost, key, policy);
+					stream.flush();
+				} catch(IOException ex) {
+					disconnect(socket);
+					throw ex;
+				}
+			} finally {
+				lock.unlock();
+			}
+			// the response is the reader's own instance, the caller's may be reused after a timeout
+			DecisionResult decided = response.get(timeoutMs, TimeUnit.MILLISECONDS);
+			return result.set(decided.isAllowed(), decided.remaining(), decided.retryAfterMs(), decided.timeToFullMs());
+		} catch(TimeoutException ex) {
+			throw new IOException("Peer " + node + " did not answer within " + timeoutMs + " ms");
+		} catch(ExecutionException ex) {
+			throw new IOException("Peer " + node + " failed", ex.getCause());
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for peer " + node, ex);
+		} finally {
+			pending.remove(id);
+		}
+	}
+
+	// fire and forget, the peer does not answer gossip
+	void gossip(int fromSlot, List<GossipCounters.Delta> deltas) throws IOException {
+		lock.lock();
+		try {
+			DataOutputStream stream = connect();
+			try {
+				PeerProtocol.writeGossip(stream, fromSlot, deltas);
+				stream.flush();
+			} catch(IOException ex) {
+				disconnect(socket);
+				throw ex;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private DataOutputStream connect() throws IOException {
+		if(out != null) {
+			return out;
+		}
+		InetSocketAddress address = PeerProtocol.address(node);
+		Socket connection = new Socket();
+		try {
+			connection.setTcpNoDelay(true);
+			connection.connect(new InetSocketAddress(address.getHostString(), address.getPort()), (int) timeoutMs);
+			DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+			stream.writeInt(PeerProtocol.MAGIC);
+
+			Thread reader = new Thread(() -> read(connection, in), "peer-" + node);
+			reader.setDaemon(true);
+			reader.start();
+
+			socket = connection;
+			out = stream;
+			return stream;
+		} catch(IOException ex) {
+			connection.close();
+			throw ex;
+		}
+	}
+
+	private void read(Socket connection, DataInputStream in) {
+		try {
+			while(true) {
+				long id = in.readLong();
+				DecisionResult decided = new DecisionResult();
+				PeerProtocol.readDecision(in, decided);
+				CompletableFuture<DecisionResult> response = pending.remove(id);
+				if(response != null) {
+					response.complete(decided);
+				}
+			}
+		} catch(IOException ex) {
+			lock.lock();
+			try {
+				disconnect(connection);
+			} finally {
+				lock.unlock();
+			}
+			for(CompletableFuture<DecisionResult> response: pending.values()) {
+				response.completeExceptionally(ex);
+			}
+		}
+	}
+
+	// caller holds the lock
+	private void disconnect(Socket connection) {
+		try {
+			connection.close();
+		} catch(IOException ignored) {
+			// closing anyway
+		}
+		if(socket == connection) {
+			socket = null;
+			out = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if(socket != null) {
+				disconnect(socket);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+}
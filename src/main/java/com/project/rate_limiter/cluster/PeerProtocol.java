@@ -0,0 +1,116 @@
+package com.project.rate_limiter.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+/**
+ * Binary frames exchanged between nodes over one TCP connection per peer. The client opens
+ * with MAGIC, then sends frames starting with their type. Decide requests and their responses
+ * are pipelined and matched by id, gossip frames are not answered:
+ * <pre>
+ * decide:   byte 1, long id, byte algorithm, int cost, UTF key, UTF policy name or ""
+ * response: long id, byte allowed, int remaining, long retryAfterMs, long timeToFullMs
+ * gossip:   byte 2, short fromSlot, int n, n x (UTF key, long windowMs, long window, long current, long previous)
+ * </pre>
+ * Only the policy name travels with a request: the receiver decides under its own policy of
+ * that name, so a peer can never inject policy parameters.
+ */
+final class PeerProtocol {
+
+	static final int MAGIC = 0x524c0003;
+	
+	static final int DECIDE = 1;
+	static final int GOSSIP = 2;
+
+	private static final RateLimiterAlgorithm[] ALGORITHMS = RateLimiterAlgorithm.values();
+
+	private PeerProtocol() {}
+
+	// policy is the name of the sender's policy, empty without one
+	record Request(long id, RateLimiterAlgorithm algorithm, int cost, String key, String policy) {}
+
+	static void writeRequest(DataOutputStream out, long id, RateLimiterAlgorithm algorithm, int cost,
+			String key, RateLimitPolicy policy) throws IOException {
+		out.writeByte(DECIDE);
+		out.writeLong(id);
+		out.writeByte(algorithm.ordinal());
+		out.writeInt(cost);
+		out.writeUTF(key);
+		out.writeUTF(policy == null ? "" : policy.name());
+	}
+
+	// the rest of a decide frame once its type has been read
+	static Request readRequest(DataInputStream in) throws IOException {
+		long id = in.readLong();
+		int ordinal = in.readUnsignedByte();
+		if(ordinal >= ALGORITHMS.length) {
+			throw new IOException("Unknown algorithm " + ordinal);
+		}
+		RateLimiterAlgorithm algorithm = ALGORITHMS[ordinal];
+		int cost = in.readInt();
+		if(cost < 1) {
+			throw new IOException("Invalid cost " + cost);
+		}
+		return new Request(id, algorithm, cost, in.readUTF(), in.readUTF());
+	}
+
+	static void writeResponse(DataOutputStream out, long id, DecisionResult result) throws IOException {
+		out.writeLong(id);
+		out.writeBoolean(result.isAllowed());
+		out.writeInt(result.remaining());
+		out.writeLong(result.retryAfterMs());
+		out.writeLong(result.timeToFullMs());
+	}
+
+	// the rest of a response once its id has been read
+	static void readDecision(DataInputStream in, DecisionResult result) throws IOException {
+		result.set(in.readBoolean(), in.readInt(), in.readLong(), in.readLong());
+	}
+
+	static void writeGossip(DataOutputStream out, int fromSlot, List<GossipCounters.Delta> deltas) throws IOException {
+		out.writeByte(GOSSIP);
+		out.writeShort(fromSlot);
+		out.writeInt(deltas.size());
+		for(GossipCounters.Delta delta: deltas) {
+			out.writeUTF(delta.key());
+			out.writeLong(delta.windowMs());
+			out.writeLong(delta.window());
+			out.writeLong(delta.current());
+			out.writeLong(delta.previous());
+		}
+	}
+	
+	// the rest of a gossip frame once its type has been read, handing each delta to the consumer
+	static void readGossip(DataInputStream in, GossipConsumer consumer) throws IOException {
+		int from = in.readUnsignedShort();
+		int count = in.readInt();
+		for(int i=0; i<count; i++) {
+			consumer.accept(from, new GossipCounters.Delta(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+		}
+	}
+	
+	@FunctionalInterface
+	interface GossipConsumer {
+		void accept(int from, GossipCounters.Delta delta);
+	}
+	
+	// "host:port"
+	static InetSocketAddress address(String node) {
+		int colon = node.lastIndexOf(':');
+		if(colon <= 0) {
+			throw new IllegalArgumentException("Cluster node must be host:port but was " + node);
+		}
+		try {
+			return InetSocketAddress.createUnresolved(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+		} catch(NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid port in cluster node " + node, ex);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.project.rate_limiter.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.RateLimiterService;
+
+/**
+ * Accepts peer connections on this node's rate.cluster.self address, one thread per peer
+ * connection, from the hosts of rate.cluster.nodes only. Forwarded requests are decided here
+ * even when this node's ring disagrees about the owner, so a request is forwarded at most once;
+ * gossip is merged into the counters. Peer hosts are resolved once, at startup.
+ */
+@Component
+public class PeerServer implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(PeerServer.class);
+
+	private final String self;
+	private final ClusterRouter router;
+	private final GossipCounters gossip;
+	private final PolicyEngine policies;
+	private final Map<RateLimiterAlgorithm, RateLimiterService> services = new EnumMap<>(RateLimiterAlgorithm.class);
+	private final Set<InetAddress> peerAddresses = new HashSet<>();
+
+	private volatile ServerSocket server;
+
+	public PeerServer(@Value("${rate.cluster.self:}") String self, ClusterRouter router, GossipCounters gossip, 
+			PolicyEngine policies, List<RateLimiterService> services) {
+		this.self = self.trim();
+		this.router = router;
+		this.gossip = gossip;
+		this.policies = policies;
+		for(RateLimiterService service: services) {
+			this.services.put(service.algorithm(), service);
+		}
+	}
+
+	@Override
+	public void start() {
+		if(!router.enabled()) {
+			return;
+		}
+		try {
+			for(String node: router.nodes()) {
+				peerAddresses.addAll(Arrays.asList(InetAddress.getAllByName(PeerProtocol.address(node).getHostString())));
+			}
+			// the self address only, never every interface
+			InetSocketAddress address = PeerProtocol.address(self);
+			ServerSocket socket = new ServerSocket();
+			socket.bind(new InetSocketAddress(InetAddress.getByName(address.getHostString()), address.getPort()));
+			server = socket;
+		} catch(IOException ex) {
+			throw new IllegalStateException("Cannot listen for peers on " + self, ex);
+		}
+		Thread acceptor = new Thread(this::accept, "peer-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		log.info("Listening for peers on {}", self);
+	}
+
+	private void accept() {
+		ServerSocket socket = server;
+		while(socket != null && !socket.isClosed()) {
+			try {
+				Socket connection = socket.accept();
+				if(!peerAddresses.contains(connection.getInetAddress())) {
+					log.warn("Refusing connection from {}: not a host of rate.cluster.nodes", connection.getRemoteSocketAddress());
+					connection.close();
+					continue;
+				}
+				connection.setTcpNoDelay(true);
+				Thread worker = new Thread(() -> serve(connection), "peer-" + connection.getRemoteSocketAddress());
+				worker.setDaemon(true);
+				worker.start();
+			} catch(IOException ex) {
+				if(!socket.isClosed()) {
+					log.warn("Accepting a peer connection failed", ex);
+				}
+			}
+		}
+	}
+
+	private void serve(Socket connection) {
+		try(connection) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+			if(in.readInt() != PeerProtocol.MAGIC) {
+				log.warn("Closing connection from {}: not a peer", connection.getRemoteSocketAddress());
+				return;
+			}
+
+			DecisionResult result = new DecisionResult();
+			while(true) {
+				int type = in.readUnsignedByte();
+				if(type == PeerProtocol.GOSSIP) {
+					long now = System.currentTimeMillis();
+					PeerProtocol.readGossip(in, (from, delta) -> gossip.merge(from, delta, now));
+					continue;
+				}
+				if(type != PeerProtocol.DECIDE) {
+					throw new IOException("Unknown frame type " + type);
+				}
+				
+				PeerProtocol.Request request = PeerProtocol.readRequest(in);
+				RateLimiterService service = services.get(request.algorithm());
+				if(service == null) {
+					throw new IOException(request.algorithm() + " is not available on " + self);
+				}
+				router.decideLocally(service, request.key(), request.cost(), policy(request), result);
+				PeerProtocol.writeResponse(out, request.id(), result);
+				// pipelined requests already buffered are answered before flushing
+				if(in.available() == 0) {
+					out.flush();
+				}
+			}
+		} catch(EOFException ex) {
+			// peer closed the connection
+		} catch(IOException | RuntimeException ex) {
+			log.warn("Peer connection from {} failed: {}", connection.getRemoteSocketAddress(), ex.getMessage());
+		}
+	}
+
+	// this node's own policy of the sender's name; its defaults when it has none for that algorithm,
+	// e.g. while the nodes are reloading a changed policy file
+	private RateLimitPolicy policy(PeerProtocol.Request request) {
+		if(request.policy().isEmpty()) {
+			return null;
+		}
+		RateLimitPolicy policy = policies.named(request.policy());
+		return policy != null && policy.algorithm() == request.algorithm() ? policy : null;
+	}
+
+	@Override
+	public void stop() {
+		ServerSocket socket = server;
+		server = null;
+		if(socket != null) {
+			try {
+				socket.close();
+			} catch(IOException ignored) {
+				// shutting down
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return server != null;
+	}
+}
@@ -0,0 +1,79 @@
+package com.project.rate_limiter.concurrency;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+/**
+ * Protects the downstream rather than enforcing a rate: admitted requests also need a slot of
+ * an adaptive concurrency limit, which shrinks as downstream latency rises so that load is shed
+ * before queues build. There is one limit for the whole node, or with rate.concurrency.per.route
+ * one per matched policy, requests matching no policy sharing the global one.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+	
+	public enum Strategy { AIMD, GRADIENT }
+	
+	private static final String GLOBAL = "*";
+	
+	private final boolean enabled;
+	private final boolean perRoute;
+	private final Strategy strategy;
+	private final int initialLimit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long thresholdMs;
+	private final double backoff;
+	private final double tolerance;
+	private final Map<String, ConcurrencyLimit> limits = new ConcurrentHashMap<>();
+	
+	public AdaptiveConcurrencyLimiter(@Value("${rate.concurrency.enabled:false}") boolean enabled,
+			@Value("${rate.concurrency.per.route:false}") boolean perRoute,
+			@Value("${rate.concurrency.strategy:GRADIENT}") Strategy strategy,
+			@Value("${rate.concurrency.initial.limit:20}") int initialLimit,
+			@Value("${rate.concurrency.min.limit:4}") int minLimit,
+			@Value("${rate.concurrency.max.limit:1000}") int maxLimit,
+			@Value("${rate.concurrency.latency.threshold.ms:250}") long thresholdMs,
+			@Value("${rate.concurrency.backoff:0.9}") double backoff,
+			@Value("${rate.concurrency.tolerance:2.0}") double tolerance) {
+		if(backoff <= 0 || backoff >= 1) {
+			throw new IllegalArgumentException("rate.concurrency.backoff must be between 0 and 1 but was " + backoff);
+		}
+		this.enabled = enabled;
+		this.perRoute = perRoute;
+		this.strategy = strategy;
+		this.initialLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.thresholdMs = thresholdMs;
+		this.backoff = backoff;
+		this.tolerance = Math.max(1.0, tolerance);
+	}
+	
+	public boolean enabled() {
+		return enabled;
+	}
+	
+	// the limit a request resolved to this policy runs under, null when disabled
+	public ConcurrencyLimit limit(RateLimitPolicy policy) {
+		if(!enabled) {
+			return null;
+		}
+		String scope = perRoute && policy != null ? policy.name() : GLOBAL;
+		ConcurrencyLimit limit = limits.get(scope);
+		return limit != null ? limit : limits.computeIfAbsent(scope, 
+				name -> new ConcurrencyLimit(strategy, initialLimit, minLimit, maxLimit, thresholdMs, backoff, tolerance));
+	}
+	
+	public Map<String, ConcurrencyStats> stats() {
+		Map<String, ConcurrencyStats> stats = new TreeMap<>();
+		limits.forEach((scope, limit) -> stats.put(scope, limit.stats()));
+		return stats;
+	}
+}
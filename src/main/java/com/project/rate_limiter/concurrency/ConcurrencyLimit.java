@@ -0,0 +1,121 @@
+package com.project.rate_limiter.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One adaptive limit on requests in flight. A request takes a slot while fewer than limit()
+ * are in flight and reports its latency when it leaves, which moves the limit:
+ * <ul>
+ * <li>AIMD multiplies it by the backoff when a request failed or took longer than the
+ * threshold, and otherwise adds about one per limit's worth of requests</li>
+ * <li>GRADIENT scales it by the ratio of the long-term to the recent latency, plus a
+ * square root allowance for queueing, so it shrinks as soon as latency rises</li>
+ * </ul>
+ * The limit only grows while at least half of it is in use. All state is updated with
+ * compare-and-set; a release losing the race to move the limit skips its update.
+ */
+public final class ConcurrencyLimit {
+	
+	private static final int SHORT_RTT_SHIFT = 3;
+	private static final int LONG_RTT_SHIFT = 9;
+	private static final double SMOOTHING = 0.2;
+	
+	private final AdaptiveConcurrencyLimiter.Strategy strategy;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long thresholdNanos;
+	private final double backoff;
+	private final double tolerance;
+	
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong limitBits;
+	private final AtomicLong shortRttNanos = new AtomicLong();
+	private final AtomicLong longRttNanos = new AtomicLong();
+	private final LongAdder shed = new LongAdder();
+	
+	ConcurrencyLimit(AdaptiveConcurrencyLimiter.Strategy strategy, int initialLimit, int minLimit, int maxLimit,
+			long thresholdMs, double backoff, double tolerance) {
+		this.strategy = strategy;
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+		this.backoff = backoff;
+		this.tolerance = tolerance;
+		this.limitBits = new AtomicLong(Double.doubleToRawLongBits(clamp(initialLimit)));
+	}
+	
+	public boolean tryAcquire() {
+		int limit = limit();
+		while(true) {
+			int current = inFlight.get();
+			if(current >= limit) {
+				shed.increment();
+				return false;
+			}
+			if(inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	// failed means the downstream signalled overload, e.g. 503, 504 or a thrown exception
+	public void release(long latencyNanos, boolean failed) {
+		int inFlightBefore = inFlight.getAndDecrement();
+		long shortRtt = ewma(shortRttNanos, latencyNanos, SHORT_RTT_SHIFT);
+		long longRtt = ewma(longRttNanos, latencyNanos, LONG_RTT_SHIFT);
+		
+		long bits = limitBits.get();
+		double limit = Double.longBitsToDouble(bits);
+		boolean saturated = inFlightBefore >= limit / 2;
+		double next;
+		if(strategy == AdaptiveConcurrencyLimiter.Strategy.AIMD) {
+			if(failed || latencyNanos > thresholdNanos) {
+				next = limit * backoff;
+			} else if(saturated) {
+				next = limit + 1.0 / limit;
+			} else {
+				return;
+			}
+		} else {
+			if(failed) {
+				next = limit * backoff;
+			} else {
+				double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / Math.max(1, shortRtt)));
+				double target = limit * gradient + Math.sqrt(limit);
+				if(target > limit && !saturated) {
+					return;
+				}
+				next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+			}
+		}
+		limitBits.compareAndSet(bits, Double.doubleToRawLongBits(clamp(next)));
+	}
+	
+	public int limit() {
+		return (int) Double.longBitsToDouble(limitBits.get());
+	}
+	
+	public ConcurrencyStats stats() {
+		return new ConcurrencyStats(limit(), inFlight.get(), 
+				TimeUnit.NANOSECONDS.toMicros(shortRttNanos.get()), 
+				TimeUnit.NANOSECONDS.toMicros(longRttNanos.get()), shed.sum());
+	}
+	
+	private double clamp(double limit) {
+		return Math.max(minLimit, Math.min(maxLimit, limit));
+	}
+	
+	// exponentially weighted average moving 1/2^shift of the way to the sample; the first sample sets it
+	private static long ewma(AtomicLong average, long sample, int shift) {
+		while(true) {
+			long current = average.get();
+			long next = current == 0 ? sample : current + ((sample - current) >> shift);
+			if(average.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+	}
+}
@@ -0,0 +1,9 @@
+package com.project.rate_limiter.concurrency;
+
+public record ConcurrencyStats(
+		int limit,
+		int inFlight,
+		long shortRttMicros,
+		long longRttMicros,
+		long shed
+) {}
@@ -1,13 +1,34 @@
 package com.project.rate_limiter.constants;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum RateLimiterAlgorithm {
 	TOKEN_BUCKET,
 	SLIDING_WINDOW,
-	FIXED_WINDOW;
+	FIXED_WINDOW,
+	SLIDING_WINDOW_COUNTER,
+	GCRA,
+	COMPOSITE;
+	
+	// exact and lower case names resolve without trimming or case conversion
+	private static final Map<String, RateLimiterAlgorithm> BY_NAME = new HashMap<>();
+	static {
+		for(RateLimiterAlgorithm algorithm: values()) {
+			BY_NAME.put(algorithm.name(), algorithm);
+			BY_NAME.put(algorithm.name().toLowerCase(Locale.ROOT), algorithm);
+		}
+	}
 	
 	public static RateLimiterAlgorithm from(String arg) {
-		if(arg == null || arg.isBlank()) { return TOKEN_BUCKET; }
+		if(arg == null) { return TOKEN_BUCKET; }
+		
+		RateLimiterAlgorithm algorithm = BY_NAME.get(arg);
+		if(algorithm != null) { return algorithm; }
+		
+		if(arg.isBlank()) { return TOKEN_BUCKET; }
 		
-		return RateLimiterAlgorithm.valueOf(arg.trim().toUpperCase());
+		return RateLimiterAlgorithm.valueOf(arg.trim().toUpperCase(Locale.ROOT));
 	}
 }
@@ -0,0 +1,83 @@
+package com.project.rate_limiter.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.project.rate_limiter.bench.BenchPlan;
+import com.project.rate_limiter.bench.BenchReport;
+import com.project.rate_limiter.bench.LoadGenerator;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.controller.dto.BenchRequest;
+import com.project.rate_limiter.policy.LimitComponent;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Tag(name = "Load Generator", description = "Measure throughput, latency and limit accuracy under concurrent load")
+@RestController
+@RequestMapping("/limiter/bench")
+public class BenchController {
+	
+	private final LoadGenerator loadGenerator;
+	
+	@Value("${rate.request.limit.count}")
+	private int limit;
+	
+	@Value("${rate.request.limit.timeperiod}")
+	private long timePeriodLimitInMs;
+	
+	@Value("${rate.request.limit.refill.rate:1}")
+	private int refillRate;
+	
+	public BenchController(LoadGenerator loadGenerator) {
+		this.loadGenerator = loadGenerator;
+	}
+	
+	@Operation(
+			summary = "Drive concurrent load against an in-process limiter or a URL",
+			description = """
+					Each of threads sends requests back to back for durationMs, on keys drawn UNIFORM or ZIPFIAN (skew in (0, 1)). \\n
+					→ Without url a private limiter is built from algorithm and the limits (configured ones by default) \\n
+					→ With url every request is a GET carrying X-RateLimit-Alg and X-User-Id \\n
+					→ Reports throughput, p50/p99/p999 latency, admitted vs expected rate and the drift between them
+					"""
+		)
+	@PostMapping
+	public BenchReport bench(@RequestBody BenchRequest request) throws InterruptedException {
+		RateLimiterAlgorithm algorithm = RateLimiterAlgorithm.from(request.algorithm());
+		int policyLimit = request.limit() == null ? limit : request.limit();
+		long windowMs = request.windowMs() == null ? timePeriodLimitInMs : request.windowMs();
+		int policyRefillRate = request.refillRate() == null ? refillRate : request.refillRate();
+		List<LimitComponent> components = List.of();
+		if(algorithm == RateLimiterAlgorithm.COMPOSITE) {
+			components = LimitComponent.parse(request.limits() == null 
+					? limit + "/" + timePeriodLimitInMs : request.limits());
+		}
+		if(policyLimit < 1 || windowMs < 1 || policyRefillRate < 1) {
+			throw new IllegalArgumentException("Limit, windowMs and refillRate must be positive");
+		}
+		
+		RateLimitPolicy policy = new RateLimitPolicy("bench", algorithm, policyLimit, windowMs, policyRefillRate, components);
+		return loadGenerator.run(new BenchPlan(policy, 
+				request.url() == null || request.url().isBlank() ? null : request.url(),
+				request.threads() == null ? Runtime.getRuntime().availableProcessors() : request.threads(),
+				request.durationMs() == null ? 5_000L : request.durationMs(),
+				request.keys() == null ? 1_000 : request.keys(),
+				request.distribution(),
+				request.skew() == null ? 0.99 : request.skew(),
+				request.seed() == null ? 0L : request.seed()));
+	}
+	
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> invalidBench(IllegalArgumentException ex){
+		return ResponseEntity.badRequest().body(ex.getMessage());
+	}
+}
@@ -2,24 +2,31 @@ package com.project.rate_limiter.controller;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
 
-import com.project.rate_limiter.controller.dto.DemoEvent;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
 import com.project.rate_limiter.controller.dto.DemoRunRequest;
 import com.project.rate_limiter.controller.dto.DemoRunResponse;
+import com.project.rate_limiter.controller.dto.SimulationRequest;
+import com.project.rate_limiter.controller.dto.SimulationResponse;
+import com.project.rate_limiter.controller.dto.TrafficSpec;
 import com.project.rate_limiter.helper.ResponseTextHelper;
+import com.project.rate_limiter.policy.LimitComponent;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.simulation.Simulation;
+import com.project.rate_limiter.simulation.Simulation.Marker;
+import com.project.rate_limiter.simulation.SimulationEngine;
+import com.project.rate_limiter.simulation.SimulationResult;
+import com.project.rate_limiter.simulation.TrafficPattern;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -29,7 +36,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @RequestMapping("/limiter/demo")
 public class DemoRunController {
 	
-	private final RestTemplate restTemplate;
+	private static final int MAX_TIMELINE = 10_000;
+	private static final int MAX_PATTERNS = 64;
+	
+	private final SimulationEngine simulationEngine;
 	
 	@Value("${rate.request.limit.count}")
 	private int limit;
@@ -39,15 +49,18 @@ public class DemoRunController {
 	
 	@Value("${rate.request.limit.refill.rate:1}")
 	private int refillRate;
+	
+	@Value("${rate.simulation.max.events:10000000}")
+	private long maxEvents;
 
-	public DemoRunController(RestTemplate restTemplate) {
-		this.restTemplate = restTemplate;
+	public DemoRunController(SimulationEngine simulationEngine) {
+		this.simulationEngine = simulationEngine;
 	}
 	
 	@Operation(
 		summary = "Run a rate limiting demo scenario using token bucket algorithm as backend logic",
 		description = """
-		Runs a preconfigured traffic pattern and returns a with status (200/429).\n
+		Runs a preconfigured traffic pattern on a virtual clock and returns a with status (200/429).\n
 		→ Initial burst consumes all available tokens (5 tokens - 1 token refilled per second) \n
 		→ No tokens left so requests are blocked \n
 		→ Refill rate is 1 sec so after waiting 1 second, one token refills \n
@@ -55,56 +68,42 @@ public class DemoRunController {
 		"""
 	)
 	@PostMapping("/run/token")
-	public DemoRunResponse runTokenBucketDemo(@RequestBody DemoRunRequest request) throws InterruptedException{
-		String alg = "TOKEN_BUCKET";
-		String scenario = "TOKEN_BUCKET_BURST_REFILL";
-		String userId = (request.userId() == null || request.userId().isBlank() ) ? "demo_user" : request.userId();
-		
-		List<DemoEvent> timeline = new ArrayList<>();
-		
-		Map<String, Object> config = ResponseTextHelper.buildConfig(alg, limit, timePeriodLimitInMs, refillRate);
-		
-		runTokenBucketBurstRefill(alg, scenario, userId, timeline);
-		
-		int allowed = (int) timeline.stream().filter(e -> e.status() == 200).count();
-		int blocked = (int) timeline.stream().filter(e -> e.status() == 429).count();
+	public DemoRunResponse runTokenBucketDemo(@RequestBody DemoRunRequest request) {
+		TrafficPattern traffic = TrafficPattern.merge(List.of(
+				TrafficPattern.burst(limit + 3, 0),
+				TrafficPattern.uniform(5, 1000, 1000)));
 		
-		return new DemoRunResponse(alg, allowed, blocked, config, timeline);
+		return run("TOKEN_BUCKET", "TOKEN_BUCKET_BURST_REFILL", userId(request.userId()), traffic, 
+				List.of(new Marker(1000, "triggered calls at 1 sec interval")));
 	}
 	
 	@Operation(
 			summary = "Run a rate limiting demo scenario using sliding window algorithm as backend logic",
 			description = """
-			Runs a preconfigured traffic pattern and returns a with status (200/429).\n
+			Runs a preconfigured traffic pattern on a virtual clock and returns a with status (200/429).\n
 			→ Burst fills the rolling window (5 requests per 6 seconds) \n
 			→ Further requests are blocked until the oldest request expires \n 
-			→ System triggered to sleep wait for certain time, the window slides forward \n
+			→ The virtual clock moves forward by one window, the window slides forward \n
 			→ All request data outside time window are purged and capacity gradually becomes available again.
 			"""
 		)
 		@PostMapping("/run/sliding")
-		public DemoRunResponse runSlidingWindowDemo(@RequestBody DemoRunRequest request) throws InterruptedException{
-			String alg = "SLIDING_WINDOW";
-			String scenario = "SLIDING_WINDOW_SMOOTH";
-			String userId = (request.userId() == null || request.userId().isBlank() ) ? "demo_user" : request.userId();
+		public DemoRunResponse runSlidingWindowDemo(@RequestBody DemoRunRequest request) {
+			// one past the window, a request exactly one window later still counts
+			long waitMs = Math.max(200, timePeriodLimitInMs + 1);
+			TrafficPattern traffic = TrafficPattern.merge(List.of(
+					TrafficPattern.burst(limit + 5, 0),
+					TrafficPattern.uniform(5, waitMs, 150)));
 			
-			List<DemoEvent> timeline = new ArrayList<>();
-			
-			Map<String, Object> config = ResponseTextHelper.buildConfig(alg, limit, timePeriodLimitInMs, refillRate);
-			
-			runSlidingWindowSmooth(alg, scenario, userId, timeline);
-			
-			int allowed = (int) timeline.stream().filter(e -> e.status() == 200).count();
-			int blocked = (int) timeline.stream().filter(e -> e.status() == 429).count();
-			
-			return new DemoRunResponse(alg, allowed, blocked, config, timeline);
+			return run("SLIDING_WINDOW", "SLIDING_WINDOW_SMOOTH", userId(request.userId()), traffic, 
+					List.of(new Marker(waitMs, "clock advanced by "+waitMs+" Ms")));
 		}
 	
 	@Operation(
 			summary = "Run a rate limiting demo scenario using fixed window algorithm as backend logic",
 			description = """
-					Runs a preconfigured traffic pattern and returns a with status (200/429). \n
-					→ System sleep wait for 5 seconds \n
+					Runs a preconfigured traffic pattern on a virtual clock and returns a with status (200/429). \n
+					→ One request starts the window, the clock then moves to just before it ends \n
 					→ Burst fills the fixed window (5 requests per 6 seconds) \n
 					→ Request counter reaches its limit so further calls blocked \n 
 					→ When the fixed time window resets, the counter is cleared (5 requests available again for next 6 seconds window) \n
@@ -113,118 +112,151 @@ public class DemoRunController {
 					"""
 		)
 		@PostMapping("/run/fixed")
-		public DemoRunResponse runFixedWindowDemo(@RequestBody DemoRunRequest request) throws InterruptedException{
-			String alg = "FIXED_WINDOW";
-			String scenario = "FIXED_WINDOW_BOUNDARY_BURST";
-			String userId = (request.userId() == null || request.userId().isBlank() ) ? "demo_user" : request.userId();
-			
-			List<DemoEvent> timeline = new ArrayList<>();
+		public DemoRunResponse runFixedWindowDemo(@RequestBody DemoRunRequest request) {
+			return runBoundaryBurst("FIXED_WINDOW", "FIXED_WINDOW_BOUNDARY_BURST", userId(request.userId()), 
+					"clock advanced and counter resets as 6 seconds are up");
+		}
+	
+	@Operation(
+			summary = "Run the fixed window boundary scenario using sliding window counter algorithm as backend logic",
+			description = """
+					Runs the same traffic pattern as the fixed window demo and returns a with status (200/429). \n
+					→ Only the current and previous window counters are kept per user \n
+					→ The previous window's count is weighted by how much of it still overlaps the rolling window \n
+					→ Burst fills the window (5 requests per 6 seconds) \n
+					→ At the boundary the previous burst still counts, so the second burst is blocked (no double-dip effect)
+					"""
+		)
+		@PostMapping("/run/sliding-counter")
+		public DemoRunResponse runSlidingWindowCounterDemo(@RequestBody DemoRunRequest request) {
+			return runBoundaryBurst("SLIDING_WINDOW_COUNTER", "SLIDING_WINDOW_COUNTER_BOUNDARY_BURST", userId(request.userId()), 
+					"clock advanced past the boundary, previous window still weighs in");
+		}
+	
+	@Operation(
+			summary = "Simulate user defined traffic against a fresh limiter on a virtual clock",
+			description = """
+					Combines BURST (count, startMs), UNIFORM (count, startMs, intervalMs), POISSON (ratePerSecond, startMs, durationMs) 
+					and TRACE (timestamps) traffic, all in virtual milliseconds, and decides every arrival without sleeping. \n
+					→ keys spreads arrivals over that many users at random, seed makes the run repeatable \n
+					→ timeline caps the recorded events, the summary always covers the whole run \n
+					→ Limits default to the configured ones; COMPOSITE takes limits such as 10/1000,500/60000
+					"""
+		)
+		@PostMapping("/simulate")
+		public SimulationResponse simulate(@RequestBody SimulationRequest request) {
+			RateLimiterAlgorithm algorithm = RateLimiterAlgorithm.from(request.algorithm());
+			int policyLimit = request.limit() == null ? limit : request.limit();
+			long windowMs = request.windowMs() == null ? timePeriodLimitInMs : request.windowMs();
+			int policyRefillRate = request.refillRate() == null ? refillRate : request.refillRate();
+			List<LimitComponent> components = List.of();
+			if(algorithm == RateLimiterAlgorithm.COMPOSITE) {
+				components = LimitComponent.parse(request.limits() == null 
+						? limit + "/" + timePeriodLimitInMs : request.limits());
+			}
+			if(policyLimit < 1 || windowMs < 1 || policyRefillRate < 1) {
+				throw new IllegalArgumentException("Limit, windowMs and refillRate must be positive");
+			}
+			if(request.traffic() == null || request.traffic().isEmpty() || request.traffic().size() > MAX_PATTERNS) {
+				throw new IllegalArgumentException("Between 1 and " + MAX_PATTERNS + " traffic patterns are required");
+			}
 			
-			Map<String, Object> config = ResponseTextHelper.buildConfig(alg, limit, timePeriodLimitInMs, refillRate);
+			List<TrafficPattern> patterns = new ArrayList<>();
+			List<Marker> markers = new ArrayList<>();
+			for(TrafficSpec spec: request.traffic()) {
+				patterns.add(pattern(spec));
+				if(spec.comment() != null && !spec.comment().isBlank()) {
+					markers.add(new Marker(markerAt(spec), spec.comment()));
+				}
+			}
 			
-			runFixedWindowBoundaryBurst(alg, scenario, userId, timeline);
+			RateLimitPolicy policy = new RateLimitPolicy("simulation", algorithm, 
+					policyLimit, windowMs, policyRefillRate, components);
+			SimulationResult result = simulationEngine.run(new Simulation(policy, TrafficPattern.merge(patterns), markers, 
+					userId(request.userId()), 
+					request.keys() == null ? 1 : request.keys(), 
+					request.seed() == null ? 0L : request.seed(), 
+					Math.min(MAX_TIMELINE, request.timeline() == null ? 100 : request.timeline())));
 			
-			int allowed = (int) timeline.stream().filter(e -> e.status() == 200).count();
-			int blocked = (int) timeline.stream().filter(e -> e.status() == 429).count();
+			Map<String, Object> config = ResponseTextHelper.buildConfig(algorithm.name(), policyLimit, windowMs, policyRefillRate);
+			if(algorithm == RateLimiterAlgorithm.COMPOSITE) {
+				config.put("limits", components);
+			}
 			
-			return new DemoRunResponse(alg, allowed, blocked, config, timeline);
+			return new SimulationResponse(result.algorithm(), 
+					ResponseTextHelper.generateSimulationSummary(result, config), 
+					ResponseTextHelper.generateTimeline(result.timeline()));
 		}
 	
-	private void runFixedWindowBoundaryBurst(String alg, String scenario, String userId, 
-			List<DemoEvent> timeline) throws InterruptedException {
-		callCheck(alg, userId, 1, timeline);
-		
+	// one request starts the window, a burst just before it ends and another just after
+	private DemoRunResponse runBoundaryBurst(String alg, String scenario, String userId, String marker) {
 		long waitMs = Math.max(0, timePeriodLimitInMs - 200);
-		Thread.sleep(waitMs);
+		TrafficPattern traffic = TrafficPattern.merge(List.of(
+				TrafficPattern.burst(1, 0),
+				TrafficPattern.burst(limit + 1, waitMs),
+				TrafficPattern.burst(limit, waitMs + 250)));
 		
-		//Limit - 1: burst calls 
-		for(int i=0; i<Math.max(0, limit+1); i++) {
-			callCheck(alg, userId, timeline.size() + 1, timeline);
-		}
-		
-		timeline.add(new DemoEvent(0, 0, 0, "triggered system sleep and counter resets as 6 seconds are up"));
-		Thread.sleep(250);
-		
-		//Burst call again
-		for(int i=0; i<limit; i++) {
-			callCheck(alg, userId, timeline.size() + 1, timeline);
-		}
+		return run(alg, scenario, userId, traffic, List.of(new Marker(waitMs + 250, marker)));
 	}
 	
-	private void runSlidingWindowSmooth(String alg, String scenario, String userId, 
-			List<DemoEvent> timeline) throws InterruptedException {
+	private DemoRunResponse run(String alg, String scenario, String userId, 
+			TrafficPattern traffic, List<Marker> markers) {
+		RateLimitPolicy policy = new RateLimitPolicy(scenario, RateLimiterAlgorithm.from(alg), 
+				limit, timePeriodLimitInMs, refillRate, List.of());
+		SimulationResult result = simulationEngine.run(
+				new Simulation(policy, traffic, markers, userId, 1, 0L, Integer.MAX_VALUE));
 		
-		for(int i=0; i<limit; i++) {
-			callCheck(alg, userId, i+1, timeline);
-		}
-		
-		for(int i=0; i<5; i++) {
-			callCheck(alg, userId, timeline.size()+1, timeline);
-		}
-		
-		timeline.add(new DemoEvent(0, 0, 0, "triggered sleep for system: "+timePeriodLimitInMs+" Ms"));
-		
-		Thread.sleep(Math.max(200, timePeriodLimitInMs));
+		Map<String, Object> config = ResponseTextHelper.buildConfig(alg, limit, timePeriodLimitInMs, refillRate);
 		
-		for(int i=0; i<5; i++) {
-			callCheck(alg, userId, timeline.size()+1, timeline);
-			Thread.sleep(150);
-		}
+		return new DemoRunResponse(alg, (int) result.allowed(), (int) result.blocked(), config, result.timeline());
 	}
 	
-	private void runTokenBucketBurstRefill(String alg, String scenario, String userId, 
-			List<DemoEvent> timeline) throws InterruptedException {
-		
-		int burst = limit + 3;
+	private TrafficPattern pattern(TrafficSpec spec) {
+		String type = spec.type() == null ? "" : spec.type().trim().toUpperCase(Locale.ROOT);
+		long startMs = spec.startMs() == null ? 0 : spec.startMs();
 		
-		for(int i=0; i<burst; i++) {
-			callCheck(alg, userId, i+1, timeline);
+		return switch(type) {
+			case "BURST" -> TrafficPattern.burst(count(spec), startMs);
+			case "UNIFORM" -> TrafficPattern.uniform(count(spec), startMs, 
+					required(spec.intervalMs(), "intervalMs"));
+			case "POISSON" -> TrafficPattern.poisson(required(spec.ratePerSecond(), "ratePerSecond"), startMs, 
+					required(spec.durationMs(), "durationMs"));
+			case "TRACE" -> TrafficPattern.trace(required(spec.timestamps(), "timestamps").stream()
+					.mapToLong(Long::longValue).toArray());
+			default -> throw new IllegalArgumentException(
+					"Traffic type must be one of BURST, UNIFORM, POISSON, TRACE but was " + spec.type());
+		};
+	}
+	
+	// a run stops after maxEvents arrivals anyway
+	private int count(TrafficSpec spec) {
+		int count = required(spec.count(), "count");
+		if(count > maxEvents) {
+			throw new IllegalArgumentException("Traffic count must be at most " + maxEvents);
 		}
-		
-		timeline.add(new DemoEvent(0, 0, 0, "triggered calls at 1 sec interval"));
-		
-		for(int i=0; i<5; i++) {
-			Thread.sleep(1000);
-			callCheck(alg, userId, timeline.size()+1, timeline);
+		return count;
+	}
+	
+	private static long markerAt(TrafficSpec spec) {
+		if(spec.timestamps() != null && !spec.timestamps().isEmpty()) {
+			return spec.timestamps().stream().mapToLong(Long::longValue).min().getAsLong();
 		}
+		return spec.startMs() == null ? 0 : spec.startMs();
 	}
 	
-	private void callCheck(String alg, String userId, int index,
-			List<DemoEvent> timeline) {
-		
-		HttpHeaders headers = new HttpHeaders();
-		headers.set("X-RateLimit-Alg", alg);
-		headers.set("X-User-Id", userId);
-		
-		HttpEntity<Void> entity = new HttpEntity<>(headers);
-		int status;
-		HttpHeaders resultHeaders;
-		
-		try{
-			ResponseEntity<String> res = restTemplate.exchange(
-				"http://localhost:8080/limiter/api/check",
-				HttpMethod.GET,
-				entity,
-				String.class);
-			status = res.getStatusCode().value();
-			resultHeaders = res.getHeaders();
-		} catch (HttpStatusCodeException ex) {
-			status = ex.getStatusCode().value();
-			resultHeaders = ex.getResponseHeaders();
-			if(resultHeaders == null ) { resultHeaders = new HttpHeaders(); }
-		} catch (Exception ex) {
-			status = 0;
-			resultHeaders = new HttpHeaders();
+	private static <T> T required(T value, String field) {
+		if(value == null) {
+			throw new IllegalArgumentException("Traffic field " + field + " is required");
 		}
-		
-		long remaining = parseLong(resultHeaders.getFirst("X-RateLimit-Remaining"));
-		long retryAfterMs = parseLong(resultHeaders.getFirst("X-RateLimit-RetryAfter-Ms"));
-		
-		timeline.add(new DemoEvent(status, remaining, retryAfterMs, ""));
+		return value;
+	}
+	
+	private static String userId(String userId) {
+		return (userId == null || userId.isBlank()) ? "demo_user" : userId;
 	}
 	
-	private long parseLong(String v) {
-		try { return (v==null) ? 0 : Long.parseLong(v); }
-		catch (Exception ex) { return 0; }
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> invalidSimulation(IllegalArgumentException ex){
+		return ResponseEntity.badRequest().body(ex.getMessage());
 	}
 }
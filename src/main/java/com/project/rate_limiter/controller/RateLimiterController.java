@@ -1,19 +1,44 @@
 package com.project.rate_limiter.controller;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.project.rate_limiter.controller.dto.BatchDecisionRequest;
+import com.project.rate_limiter.controller.dto.BatchDecisionResponse;
+import com.project.rate_limiter.service.BatchDecisionService;
+
 import io.swagger.v3.oas.annotations.Operation;
 
 @RestController
 @RequestMapping("/limiter/api")
 public class RateLimiterController {
 	
+	private final BatchDecisionService batchDecisionService;
+	
+	public RateLimiterController(BatchDecisionService batchDecisionService) {
+		this.batchDecisionService = batchDecisionService;
+	}
+	
 	@Operation(hidden = true)
 	@GetMapping("/check")
 	public ResponseEntity<String> isAllowed(){
 		return ResponseEntity.ok("Request Allowed");
 	}
+	
+	@Operation(summary = "Decide several key/algorithm/cost checks in one call",
+			description = "With allOrNothing set, nothing is consumed unless every check is allowed")
+	@PostMapping("/batch")
+	public ResponseEntity<BatchDecisionResponse> batch(@RequestBody BatchDecisionRequest request){
+		return ResponseEntity.ok(batchDecisionService.decide(request.checks(), request.allOrNothing()));
+	}
+	
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> invalidBatch(IllegalArgumentException ex){
+		return ResponseEntity.badRequest().body(ex.getMessage());
+	}
 }
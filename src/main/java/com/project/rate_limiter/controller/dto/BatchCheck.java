@@ -0,0 +1,7 @@
+package com.project.rate_limiter.controller.dto;
+
+public record BatchCheck(
+	String key,
+	String algorithm,
+	Integer cost
+) {}
@@ -0,0 +1,8 @@
+package com.project.rate_limiter.controller.dto;
+
+import java.util.List;
+
+public record BatchDecisionRequest(
+	List<BatchCheck> checks,
+	boolean allOrNothing
+) {}
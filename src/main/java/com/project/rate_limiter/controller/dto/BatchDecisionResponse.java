@@ -0,0 +1,10 @@
+package com.project.rate_limiter.controller.dto;
+
+import java.util.List;
+
+import com.project.rate_limiter.entity.RateLimiterDecision;
+
+public record BatchDecisionResponse(
+	boolean allowed,
+	List<RateLimiterDecision> decisions
+) {}
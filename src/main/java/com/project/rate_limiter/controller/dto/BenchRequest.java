@@ -0,0 +1,16 @@
+package com.project.rate_limiter.controller.dto;
+
+public record BenchRequest(
+	String algorithm,
+	String url,
+	Integer threads,
+	Long durationMs,
+	Integer keys,
+	String distribution,
+	Double skew,
+	Integer limit,
+	Long windowMs,
+	Integer refillRate,
+	String limits,
+	Long seed
+) {}
@@ -0,0 +1,16 @@
+package com.project.rate_limiter.controller.dto;
+
+import java.util.List;
+
+public record SimulationRequest(
+	String algorithm,
+	String userId,
+	Integer limit,
+	Long windowMs,
+	Integer refillRate,
+	String limits,
+	Integer keys,
+	Long seed,
+	Integer timeline,
+	List<TrafficSpec> traffic
+) {}
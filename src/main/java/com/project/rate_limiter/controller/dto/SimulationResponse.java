@@ -0,0 +1,10 @@
+package com.project.rate_limiter.controller.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record SimulationResponse(
+	String algorithm,
+	Map<String, Object> summary,
+	List<Map<String, Object>> timeline
+) {}
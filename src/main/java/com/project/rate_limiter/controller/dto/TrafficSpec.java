@@ -0,0 +1,14 @@
+package com.project.rate_limiter.controller.dto;
+
+import java.util.List;
+
+public record TrafficSpec(
+	String type,
+	Integer count,
+	Long startMs,
+	Long intervalMs,
+	Double ratePerSecond,
+	Long durationMs,
+	List<Long> timestamps,
+	String comment
+) {}
@@ -0,0 +1,45 @@
+package com.project.rate_limiter.entity;
+
+/**
+ * Mutable counterpart of RateLimiterDecision. The filter reuses one per thread,
+ * so deciding a request does not allocate.
+ */
+public final class DecisionResult {
+	
+	private boolean allowed;
+	private int remaining;
+	private long retryAfterMs;
+	private long timeToFullMs;
+	
+	public DecisionResult set(boolean allowed, int remaining, long retryAfterMs, long timeToFullMs) {
+		this.allowed = allowed;
+		this.remaining = remaining;
+		this.retryAfterMs = retryAfterMs;
+		this.timeToFullMs = timeToFullMs;
+		return this;
+	}
+	
+	public DecisionResult set(RateLimiterDecision decision) {
+		return set(decision.isAllowed(), decision.remaining(), decision.retryAfterMs(), decision.timeToFullMs());
+	}
+	
+	public boolean isAllowed() {
+		return allowed;
+	}
+	
+	public int remaining() {
+		return remaining;
+	}
+	
+	public long retryAfterMs() {
+		return retryAfterMs;
+	}
+	
+	public long timeToFullMs() {
+		return timeToFullMs;
+	}
+	
+	public RateLimiterDecision toDecision() {
+		return new RateLimiterDecision(allowed, remaining, retryAfterMs, timeToFullMs);
+	}
+}
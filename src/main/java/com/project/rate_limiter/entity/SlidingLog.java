@@ -0,0 +1,86 @@
+package com.project.rate_limiter.entity;
+
+/**
+ * Ring buffer of admitted request timestamps in arrival order.
+ * Expiry only advances the head pointer, so steady-state operations never allocate.
+ * The array starts small and doubles on demand up to the configured request limit,
+ * which keeps rarely seen keys cheap while high-limit policies never resize again.
+ */
+public final class SlidingLog {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] timestamps;
+	private int head;
+	private int size;
+
+	public SlidingLog(int limit) {
+		this.timestamps = new long[Math.max(1, Math.min(limit, INITIAL_CAPACITY))];
+	}
+
+	// drops every timestamp older than the cutoff, returns how many were dropped
+	public int expireBefore(long cutoff) {
+		int expired = 0;
+		while(size > 0 && timestamps[head] < cutoff) {
+			head = (head + 1) % timestamps.length;
+			size--;
+			expired++;
+		}
+		return expired;
+	}
+
+	public void add(long timestamp, int limit) {
+		if(size == timestamps.length) {
+			grow(limit);
+		}
+		timestamps[(head + size) % timestamps.length] = timestamp;
+		size++;
+	}
+
+	// removes up to count entries with exactly this timestamp, newest first
+	public int remove(long timestamp, int count) {
+		int removed = 0;
+		for(int i=size-1; i>=0 && removed<count && at(i)>=timestamp; i--) {
+			if(at(i) != timestamp) {
+				continue;
+			}
+			for(int j=i; j<size-1; j++) {
+				timestamps[index(j)] = at(j + 1);
+			}
+			size--;
+			removed++;
+		}
+		return removed;
+	}
+
+	// i-th timestamp counted from the oldest
+	public long at(int i) {
+		return timestamps[index(i)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long oldest() {
+		return timestamps[head];
+	}
+
+	public long newest() {
+		return timestamps[(head + size - 1) % timestamps.length];
+	}
+
+	private int index(int i) {
+		return (head + i) % timestamps.length;
+	}
+
+	private void grow(int limit) {
+		int capacity = (int) Math.min(Math.max(limit, size + 1), 2L * timestamps.length);
+		long[] resized = new long[capacity];
+		for(int i=0; i<size; i++) {
+			resized[i] = timestamps[(head + i) % timestamps.length];
+		}
+		timestamps = resized;
+		head = 0;
+	}
+}
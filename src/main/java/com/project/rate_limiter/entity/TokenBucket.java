@@ -1,27 +1,45 @@
 package com.project.rate_limiter.entity;
 
-import lombok.Data;
-
-@Data
-public class TokenBucket {
-    int tokens;
-    int capacity;
-    int refillRate;
-    long lastRefillTimestamp;
-
-    public TokenBucket(int capacity, int refillRate, long lastRefillTimestamp) {
-        this.capacity = capacity;
-        this.refillRate = refillRate;
-        this.tokens = capacity;
-        this.lastRefillTimestamp = lastRefillTimestamp;
-    }
-
-    public void refill(long currentTime) {
-        long elapsedTime = currentTime - lastRefillTimestamp;
-        long tokensToAdd = (elapsedTime / 1000) * refillRate;
-        if (tokensToAdd > 0) {
-            tokens = Math.min(capacity, tokens + (int) tokensToAdd);
-            lastRefillTimestamp = currentTime;
-        }
-    }
+import com.project.rate_limiter.store.PackedState;
+
+/**
+ * Token bucket state packed as (lastRefillTimestamp, tokens), see {@link PackedState}.
+ */
+public final class TokenBucket {
+
+	private TokenBucket() {}
+
+	public static long full(int capacity, long currentTime) {
+		return PackedState.pack(currentTime, capacity);
+	}
+
+	public static long refill(long state, int capacity, int refillRate, long currentTime) {
+		long elapsedTime = currentTime - PackedState.timestamp(state);
+		long tokensToAdd = (elapsedTime / 1000) * refillRate;
+		if(tokensToAdd <= 0) {
+			return state;
+		}
+		int tokens = (int) Math.min(capacity, PackedState.count(state) + tokensToAdd);
+		return PackedState.pack(currentTime, tokens);
+	}
+
+	// refill happens in whole seconds, so the bucket is full after ceil(missing / refillRate) of them
+	public static long fullAt(long state, int capacity, int refillRate) {
+		int missing = Math.max(0, capacity - PackedState.count(state));
+		long seconds = (missing + refillRate - 1) / refillRate;
+		return PackedState.timestamp(state) + seconds * 1000;
+	}
+
+	public static int tokens(long state) {
+		return PackedState.count(state);
+	}
+
+	public static long take(long state, int tokens) {
+		return PackedState.pack(PackedState.timestamp(state), PackedState.count(state) - tokens);
+	}
+
+	public static long give(long state, int tokens, int capacity) {
+		int count = (int) Math.min(capacity, (long) PackedState.count(state) + tokens);
+		return PackedState.pack(PackedState.timestamp(state), count);
+	}
 }
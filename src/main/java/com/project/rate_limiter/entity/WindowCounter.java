@@ -0,0 +1,61 @@
+package com.project.rate_limiter.entity;
+
+import com.project.rate_limiter.store.PackedState;
+
+/**
+ * Sliding window counter state packed into one long: the low 20 bits of the current
+ * window index, then the previous and the current window counters (22 bits each).
+ * Window indices are only compared relative to each other, so the truncated index
+ * wraps safely as long as a key is touched at least once every 2^19 windows.
+ */
+public final class WindowCounter {
+
+	private static final int WINDOW_BITS = 20;
+	private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+	private static final int COUNT_BITS = PackedState.COUNT_BITS;
+	private static final long COUNT_MASK = PackedState.MAX_COUNT;
+
+	private WindowCounter() {}
+
+	public static long pack(long windowIndex, int previous, int current) {
+		return ((windowIndex & WINDOW_MASK) << (2 * COUNT_BITS))
+				| ((previous & COUNT_MASK) << COUNT_BITS)
+				| (current & COUNT_MASK);
+	}
+
+	public static int previous(long state) {
+		return (int) ((state >>> COUNT_BITS) & COUNT_MASK);
+	}
+
+	public static int current(long state) {
+		return (int) (state & COUNT_MASK);
+	}
+
+	// the previous counter stops weighing in at the next boundary, the current one a window later
+	public static long fullAt(long state, long currentTime, long windowMs) {
+		long windowIndex = currentTime / windowMs;
+		long rolled = roll(state, windowIndex);
+		if(current(rolled) > 0) {
+			return (windowIndex + 2) * windowMs;
+		}
+		if(previous(rolled) > 0) {
+			return (windowIndex + 1) * windowMs;
+		}
+		return 0;
+	}
+
+	// rolls the counters forward to the given window; requests that arrive late for an
+	// already rolled window are counted against the newest window
+	public static long roll(long state, long windowIndex) {
+		long stored = state >>> (2 * COUNT_BITS);
+		long delta = (windowIndex - stored) & WINDOW_MASK;
+		
+		if(delta == 0 || delta > (WINDOW_MASK >>> 1)) {
+			return state;
+		}
+		if(delta == 1) {
+			return pack(windowIndex, current(state), 0);
+		}
+		return pack(windowIndex, 0, 0);
+	}
+}
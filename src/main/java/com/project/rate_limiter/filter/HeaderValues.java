@@ -0,0 +1,27 @@
+package com.project.rate_limiter.filter;
+
+/**
+ * Decimal strings for small header values, created on first use and then shared,
+ * so that typical remaining/retry values do not allocate per response.
+ */
+final class HeaderValues {
+	
+	private static final int CACHED = 1 << 16;
+	private static final String[] VALUES = new String[CACHED];
+	
+	private HeaderValues() {}
+	
+	static String of(long value) {
+		if(value < 0 || value >= CACHED) {
+			return Long.toString(value);
+		}
+		
+		// racing threads may both create the string; either copy is fine
+		String cached = VALUES[(int) value];
+		if(cached == null) {
+			cached = Long.toString(value);
+			VALUES[(int) value] = cached;
+		}
+		return cached;
+	}
+}
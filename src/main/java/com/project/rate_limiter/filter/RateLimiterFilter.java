@@ -1,62 +1,169 @@
 package com.project.rate_limiter.filter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
 
+import com.project.rate_limiter.cluster.ClusterRouter;
+import com.project.rate_limiter.concurrency.AdaptiveConcurrencyLimiter;
+import com.project.rate_limiter.concurrency.ConcurrencyLimit;
 import com.project.rate_limiter.constants.RateLimiterAlgorithm;
-import com.project.rate_limiter.entity.RateLimiterDecision;
-import com.project.rate_limiter.service.FixedSizeRateLimiterService;
-import com.project.rate_limiter.service.SlidingWindowRateLimiterService;
-import com.project.rate_limiter.service.TokenBucketRateLimiterService;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.monitoring.DecisionMetrics;
+import com.project.rate_limiter.policy.LimitComponent;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.CompositeRateLimiterService;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.shaping.TrafficShaper;
+import com.project.rate_limiter.sketch.HeavyHitterGate;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+/**
+ * Decides before Spring Security, form parsing and the DispatcherServlet run, reading headers
+ * and the query string only, so a denied request costs little more than its decision.
+ * With traffic shaping on, a denied request may wait for a release slot instead of being denied.
+ */
 @Component
+@Order(RateLimiterFilter.ORDER)
 public class RateLimiterFilter extends OncePerRequestFilter{
 	
-	private FixedSizeRateLimiterService fixedSizeService;
-	private SlidingWindowRateLimiterService slidingWService;
-	private TokenBucketRateLimiterService tokenBService;
+	// after character encoding, ahead of form content (-9900), request context (-105) and security filters
+	public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
 	
-	public RateLimiterFilter(FixedSizeRateLimiterService fixedSizeService,
-				SlidingWindowRateLimiterService slidingWService,
-				TokenBucketRateLimiterService tokenBService) {
-		this.fixedSizeService = fixedSizeService;
-		this.slidingWService = slidingWService;
-		this.tokenBService = tokenBService;
+	private static final byte[] DENIED_BODY = "Too many requests\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SHED_BODY = "Overloaded, try again\n".getBytes(StandardCharsets.US_ASCII);
+	
+	private static final String SHAPED = RateLimiterFilter.class.getName() + ".SHAPED";
+	private static final String PATH = RateLimiterFilter.class.getName() + ".PATH";
+	private static final long SHAPING_GRACE_MS = 1_000L;
+	
+	@Value("${rate.request.limit.count}")
+	private int REQUEST_LIMIT;
+	
+	@Value("${rate.request.limit.timeperiod}")
+	private long TIME_WINDOW_MS;
+	
+	@Value("${rate.request.limit.refill.rate:1}")
+	private int REFILL_RATE_PER_SECOND;
+	
+	private final Map<RateLimiterAlgorithm, RateLimiterService> services = new EnumMap<>(RateLimiterAlgorithm.class);
+	
+	private final DecisionMetrics metrics;
+	private final ThreadLocal<DecisionResult> results = ThreadLocal.withInitial(DecisionResult::new);
+	
+	private final PolicyEngine policies;
+	
+	private final HeavyHitterGate heavyHitters;
+	
+	private final ClusterRouter cluster;
+	
+	private final AdaptiveConcurrencyLimiter concurrency;
+	
+	private final TrafficShaper shaper;
+	
+	public RateLimiterFilter(List<RateLimiterService> services, DecisionMetrics metrics, PolicyEngine policies, 
+			HeavyHitterGate heavyHitters, ClusterRouter cluster, AdaptiveConcurrencyLimiter concurrency,
+			TrafficShaper shaper) {
+		this.metrics = metrics;
+		this.policies = policies;
+		this.heavyHitters = heavyHitters;
+		this.cluster = cluster;
+		this.concurrency = concurrency;
+		this.shaper = shaper;
+		for(RateLimiterService service: services) {
+			this.services.put(service.algorithm(), service);
+		}
 	}
 	
 	@Override
 	protected boolean shouldNotFilter(HttpServletRequest request) {
-		String path = request.getRequestURI();
+		String path = path(request);
+		// resolved once, doFilterInternal matches policies against it
+		request.setAttribute(PATH, path);
 		
 		return path.startsWith("/swagger-ui") || 
 			   path.startsWith("/v3/api-docs") ||
+			   path.startsWith("/actuator") ||
+			   path.startsWith("/limiter/api/batch") ||
+			   path.startsWith("/limiter/bench") ||
 			   path.startsWith("/limiter/demo");
 	}
 	
+	// shaped requests come back on an async dispatch
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+	
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, 
 			HttpServletResponse response, 
 			FilterChain filterChain) throws ServletException, IOException {
-		String algRaw = request.getHeader("X-RateLimit-Alg");
-		
-		if(algRaw == null || algRaw.isBlank()) {
-			algRaw = request.getParameter("alg");
+		if(request.getDispatcherType() == DispatcherType.ASYNC) {
+			// admitted while shaped: only the concurrency limit remains; other async dispatches pass
+			Object shaped = request.getAttribute(SHAPED);
+			if(shaped instanceof ShapedRequest admitted) {
+				request.removeAttribute(SHAPED);
+				proceed(request, response, filterChain, admitted.policy);
+			} else {
+				filterChain.doFilter(request, response);
+			}
+			return;
 		}
 		
+		// a matching policy decides the algorithm and its parameters, the header only applies otherwise
+		String path = request.getAttribute(PATH) instanceof String resolved ? resolved : path(request);
+		RateLimitPolicy policy = policies.resolve(request.getHeader("X-Tenant-Id"), path, request.getMethod());
+		
 		RateLimiterAlgorithm alg;
-		try {
-			alg = RateLimiterAlgorithm.from(algRaw);
-		} catch(IllegalArgumentException ex) {
+		if(policy != null) {
+			alg = policy.algorithm();
+		} else {
+			String algRaw = request.getHeader("X-RateLimit-Alg");
+			
+			if(algRaw == null || algRaw.isBlank()) {
+				// the query string only: getParameter could parse a form body of a request about to be denied
+				algRaw = queryParameter(request.getQueryString(), "alg");
+			}
+			
+			try {
+				alg = RateLimiterAlgorithm.from(algRaw);
+			} catch(IllegalArgumentException ex) {
+				response.setStatus(HttpStatus.BAD_REQUEST.value());
+				response.getWriter().write("Invalid algorithm. Use TOKEN_BUCKET, FIXED_WINDOW, SLIDING_WINDOW, SLIDING_WINDOW_COUNTER, GCRA, COMPOSITE");
+				return;
+			}
+		}
+		
+		// a cost above the limit could never be admitted, and the services must not see it wrap around
+		int limit = limit(alg, policy);
+		int cost = policy != null && policy.cost() > 0 ? policy.cost() : cost(request.getHeader("X-RateLimit-Cost"));
+		if(cost < 1 || cost > limit) {
 			response.setStatus(HttpStatus.BAD_REQUEST.value());
-			response.getWriter().write("Invalid algorithm. Use TOKEN_BUCKET, FIXED_WINDOW, SLIDING_WINDOW");
+			response.getWriter().write("Invalid X-RateLimit-Cost. Use a positive integer up to the limit of " + limit);
 			return;
 		}
 		
@@ -65,26 +172,339 @@ public class RateLimiterFilter extends OncePerRequestFilter{
 			key = request.getRemoteAddr();
 		}
 		
-		RateLimiterDecision decision = switch(alg) {
-			case TOKEN_BUCKET -> tokenBService.decision(key);
-			case SLIDING_WINDOW -> slidingWService.decision(key);
-			case FIXED_WINDOW -> fixedSizeService.decision(key);
-		};
+		long start = metrics.start();
+		RateLimiterService service = services.get(alg);
+		DecisionResult decision;
+		// weighted requests always take the exact path, the sketch counts requests rather than units
+		long lightRemaining = cost == 1 ? heavyHitters.lightRemaining(key) : -1;
+		if(lightRemaining >= 0) {
+			// below the sketch threshold: admitted without creating exact state
+			decision = results.get().set(true, (int) Math.min(Integer.MAX_VALUE, lightRemaining), 0L, 0L);
+		} else {
+			// locally, or on the node owning the key when clustered
+			decision = cluster.decide(service, key, cost, policy, results.get());
+		}
 		
-		response.setHeader("X-RateLimit-Algorithm", alg.name());
-		response.setHeader("X-RateLimit-Key", key);
-		response.setHeader("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
-		response.setHeader("X-RateLimit-RetryAfter-Ms", String.valueOf(decision.retryAfterMs()));
-		response.setHeader("X-RateLimit-ResetIn-Ms", String.valueOf(decision.timeToFullMs()));
+		// waits for its release slot instead, and is recorded once it has an outcome
+		if(!decision.isAllowed() && request.isAsyncSupported() 
+				&& shape(request, response, alg, service, key, cost, policy, decision.retryAfterMs())) {
+			return;
+		}
+		metrics.record(alg, key, decision.isAllowed(), start);
 		
+		headers(response, alg, key, policy, decision);
 		if(!decision.isAllowed()) {
-			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-			long retryAfterSeconds = Math.max(1, (long)Math.ceil(decision.retryAfterMs() / 1000L));
-			response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+			deny(response, decision.retryAfterMs());
+			return;
+		}
+		proceed(request, response, filterChain, policy);
+	}
+	
+	// COMPOSITE without a policy admits at most its tightest default component
+	private int limit(RateLimiterAlgorithm alg, RateLimitPolicy policy) {
+		if(policy != null) {
+			return policy.limit();
+		}
+		return services.get(alg) instanceof CompositeRateLimiterService composite ? composite.tightestLimit() : REQUEST_LIMIT;
+	}
+	
+	private void proceed(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain, 
+			RateLimitPolicy policy) throws ServletException, IOException {
+		ConcurrencyLimit concurrencyLimit = concurrency.limit(policy);
+		if(concurrencyLimit == null) {
+			filterChain.doFilter(request, response);
 			return;
 		}
+		if(!concurrencyLimit.tryAcquire()) {
+			// the key was within its rate, the downstream is not keeping up
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader("X-Concurrency-Limit", HeaderValues.of(concurrencyLimit.limit()));
+			response.setHeader("Retry-After", "1");
+			response.setContentType("text/plain");
+			response.setContentLength(SHED_BODY.length);
+			response.getOutputStream().write(SHED_BODY);
+			return;
+		}
+		long started = System.nanoTime();
+		boolean failed = true;
+		try {
+			filterChain.doFilter(request, response);
+			failed = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value() 
+					|| response.getStatus() == HttpStatus.GATEWAY_TIMEOUT.value();
+		} finally {
+			concurrencyLimit.release(System.nanoTime() - started, failed);
+		}
+	}
+	
+	private static void headers(HttpServletResponse response, RateLimiterAlgorithm alg, String key, 
+			RateLimitPolicy policy, DecisionResult decision) {
+		response.setHeader("X-RateLimit-Algorithm", alg.name());
+		response.setHeader("X-RateLimit-Key", key);
+		if(policy != null) {
+			response.setHeader("X-RateLimit-Policy", policy.name());
+		}
+		response.setHeader("X-RateLimit-Remaining", HeaderValues.of(decision.remaining()));
+		response.setHeader("X-RateLimit-RetryAfter-Ms", HeaderValues.of(decision.retryAfterMs()));
+		response.setHeader("X-RateLimit-ResetIn-Ms", HeaderValues.of(decision.timeToFullMs()));
+	}
+	
+	private static void deny(HttpServletResponse response, long retryAfterMs) throws IOException {
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		long retryAfterSeconds = Math.max(1, (retryAfterMs + 999) / 1000L);
+		response.setHeader("Retry-After", HeaderValues.of(retryAfterSeconds));
+		response.setContentType("text/plain");
+		response.setContentLength(DENIED_BODY.length);
+		response.getOutputStream().write(DENIED_BODY);
+	}
+	
+	private boolean shape(HttpServletRequest request, HttpServletResponse response, RateLimiterAlgorithm alg,
+			RateLimiterService service, String key, int cost, RateLimitPolicy policy, long retryAfterMs) {
+		if(!shaper.enter()) {
+			return false;
+		}
+		String queue = alg.name() + ":" + (policy == null ? "" : policy.name()) + "|" + key;
+		long intervalNanos = intervalNanos(alg, policy, cost);
+		long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shaper.maxDelayMs());
+		long slot = shaper.reserve(queue, retryAfterMs, intervalNanos, deadlineNanos);
+		if(slot < 0) {
+			shaper.leave();
+			return false;
+		}
+		new ShapedRequest(request, response, alg, service, key, cost, policy, queue, intervalNanos, deadlineNanos)
+				.start(slot, retryAfterMs);
+		return true;
+	}
+	
+	// time the limiter takes to regain cost units, the spacing of a key's release slots; COMPOSITE
+	// policies go at their slowest component, without a policy COMPOSITE is taken as the window defaults
+	private long intervalNanos(RateLimiterAlgorithm alg, RateLimitPolicy policy, int cost) {
+		double unitMs;
+		if(policy != null && alg == RateLimiterAlgorithm.COMPOSITE) {
+			unitMs = 0;
+			for(LimitComponent component: policy.components()) {
+				unitMs = Math.max(unitMs, component.windowMs() > 0 
+						? component.windowMs() / (double) component.limit() 
+						: 1000.0 / component.refillRate());
+			}
+		} else if(alg == RateLimiterAlgorithm.TOKEN_BUCKET || alg == RateLimiterAlgorithm.GCRA) {
+			unitMs = 1000.0 / (policy == null ? REFILL_RATE_PER_SECOND : policy.refillRatePerSecond());
+		} else {
+			unitMs = policy == null ? TIME_WINDOW_MS / (double) REQUEST_LIMIT : policy.windowMs() / (double) policy.limit();
+		}
+		return (long) Math.ceil(unitMs * cost * 1_000_000);
+	}
+	
+	/**
+	 * A denied request parked in an async context until its reserved release slot. The wheel
+	 * thread hands the release to a container thread, as deciding may wait on Redis or a peer.
+	 * Admitted, it is dispatched again and continues down the chain. Still denied, e.g. as
+	 * other requests of the key took the capacity, it reserves a slot at the end of the key's
+	 * queue; none is left before the shaper's maximum delay, it gets the 429 it would have had
+	 * without shaping. Exactly one of release and timeout resolves it: a timeout arriving while
+	 * the request is decided waits for that decision, so it never answers a charged request.
+	 */
+	private final class ShapedRequest implements Runnable, AsyncListener {
+		
+		private final HttpServletResponse response;
+		private final RateLimiterAlgorithm alg;
+		private final RateLimiterService service;
+		private final String key;
+		private final int cost;
+		private final RateLimitPolicy policy;
+		private final String queue;
+		private final long intervalNanos;
+		private final long deadlineNanos;
+		private final AsyncContext async;
+		private final long startedNanos = System.nanoTime();
+		private final AtomicBoolean resolved = new AtomicBoolean();
+		// a lock rather than the monitor: deciding may wait on Redis or a peer
+		private final ReentrantLock lock = new ReentrantLock();
+		private volatile long slot;
+		private volatile long lastRetryAfterMs;
+		
+		private ShapedRequest(HttpServletRequest request, HttpServletResponse response, RateLimiterAlgorithm alg,
+				RateLimiterService service, String key, int cost, RateLimitPolicy policy, 
+				String queue, long intervalNanos, long deadlineNanos) {
+			this.response = response;
+			this.alg = alg;
+			this.service = service;
+			this.key = key;
+			this.cost = cost;
+			this.policy = policy;
+			this.queue = queue;
+			this.intervalNanos = intervalNanos;
+			this.deadlineNanos = deadlineNanos;
+			request.setAttribute(SHAPED, this);
+			this.async = request.startAsync(request, response);
+		}
 		
-		filterChain.doFilter(request, response);
-	}	
+		private void start(long slot, long retryAfterMs) {
+			// a backstop only, no slot is reserved past the deadline
+			async.setTimeout(shaper.maxDelayMs() + SHAPING_GRACE_MS);
+			async.addListener(this);
+			schedule(slot, retryAfterMs);
+		}
+		
+		private void schedule(long slot, long retryAfterMs) {
+			this.slot = slot;
+			this.lastRetryAfterMs = retryAfterMs;
+			shaper.schedule(slot, () -> {
+				if(!resolved.get()) {
+					async.start(this);
+				}
+			});
+		}
+		
+		@Override
+		public void run() {
+			lock.lock();
+			try {
+				if(resolved.get()) {
+					return;
+				}
+				long start = metrics.start();
+				DecisionResult decision = cluster.decide(service, key, cost, policy, results.get());
+				long retryAfterMs = decision.retryAfterMs();
+				if(!decision.isAllowed()) {
+					shaper.released(queue, slot);
+					slot = shaper.reserve(queue, retryAfterMs, intervalNanos, deadlineNanos);
+					if(slot >= 0) {
+						schedule(slot, retryAfterMs);
+						return;
+					}
+				}
+				resolve();
+				metrics.record(alg, key, decision.isAllowed(), start);
+				headers(response, alg, key, policy, decision);
+				if(decision.isAllowed()) {
+					response.setHeader("X-RateLimit-Delayed-Ms", 
+							HeaderValues.of(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos)));
+					async.dispatch();
+					return;
+				}
+				complete(retryAfterMs);
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		private boolean resolve() {
+			lock.lock();
+			try {
+				if(resolved.compareAndSet(false, true)) {
+					shaper.released(queue, slot);
+					shaper.leave();
+					return true;
+				}
+				return false;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		private void complete(long retryAfterMs) {
+			try {
+				deny(response, retryAfterMs);
+			} catch(IOException ex) {
+				// the client is gone, completing anyway
+			} finally {
+				async.complete();
+			}
+		}
+		
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			lock.lock();
+			try {
+				if(resolve()) {
+					metrics.record(alg, key, false, metrics.start());
+					complete(lastRetryAfterMs);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		@Override
+		public void onError(AsyncEvent event) {
+			resolve();
+		}
+		
+		@Override
+		public void onComplete(AsyncEvent event) {
+			resolve();
+		}
+		
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// not restarted
+		}
+	}
+	
+	// the path as the handler mappings see it: decoded, without ;params, // or dot segments,
+	// so an encoded or padded variant of a route cannot miss its policy; plain paths need no copy
+	static String path(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		String contextPath = request.getContextPath();
+		if(plain(uri) && uri.startsWith(contextPath)) {
+			return contextPath.isEmpty() ? uri : uri.substring(contextPath.length());
+		}
+		return StringUtils.cleanPath(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+	}
+	
+	// no %, ;, // or . and .. segments: decoding and cleaning would return it unchanged
+	static boolean plain(String uri) {
+		int length = uri.length();
+		for(int i=0; i<length; i++) {
+			char c = uri.charAt(i);
+			if(c == '%' || c == ';') {
+				return false;
+			}
+			if(c == '/' && i + 1 < length) {
+				char next = uri.charAt(i + 1);
+				if(next == '/') {
+					return false;
+				}
+				if(next == '.') {
+					int end = i + 2 < length && uri.charAt(i + 2) == '.' ? i + 3 : i + 2;
+					if(end == length || uri.charAt(end) == '/') {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+	
+	// 1 without the header, -1 when it is not a positive integer
+	static int cost(String raw) {
+		if(raw == null || raw.isEmpty()) {
+			return 1;
+		}
+		try {
+			return Math.max(-1, Integer.parseInt(raw.trim()));
+		} catch(NumberFormatException ex) {
+			return -1;
+		}
+	}
+	
+	// the raw value of the first name=value pair, without decoding; algorithm names need none
+	static String queryParameter(String query, String name) {
+		if(query == null) {
+			return null;
+		}
+		int start = 0;
+		while(start < query.length()) {
+			int end = query.indexOf('&', start);
+			if(end < 0) {
+				end = query.length();
+			}
+			if(end - start > name.length() && query.charAt(start + name.length()) == '=' && query.startsWith(name, start)) {
+				return query.substring(start + name.length() + 1, end);
+			}
+			start = end + 1;
+		}
+		return null;
+	}
 
 }
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.project.rate_limiter.controller.dto.DemoEvent;
+import com.project.rate_limiter.simulation.SimulationResult;
 
 public class ResponseTextHelper {
 		
@@ -14,11 +15,11 @@ public class ResponseTextHelper {
 			long timePeriodLimitInMs, int refillRate) {
 	    Map<String, Object> cfg = new HashMap<>();	    
 	    switch (algorithm) {
-	        case "FIXED_WINDOW", "SLIDING_WINDOW" -> {
+	        case "FIXED_WINDOW", "SLIDING_WINDOW", "SLIDING_WINDOW_COUNTER" -> {
 	        	cfg.put("limit", limit);
 	        	cfg.put("timePeriodLimitIn_Ms", timePeriodLimitInMs);
 	        }
-	        case "TOKEN_BUCKET" -> {
+	        case "TOKEN_BUCKET", "GCRA" -> {
 	        	cfg.put("capacity", limit);
 	        	cfg.put("refillRatePerSec", refillRate);
 	        }
@@ -61,4 +62,20 @@ public class ResponseTextHelper {
 		
 		return summary;
 	}
+	
+	public static Map<String, Object> generateSimulationSummary(SimulationResult result, 
+			Map<String, Object> config) {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		
+		summary.put("allowed", result.allowed());
+		summary.put("blocked", result.blocked());
+		summary.put("events", result.events());
+		summary.put("virtualDurationMs", result.durationMs());
+		summary.put("admittedPerSec", result.admittedPerSecond());
+		summary.put("wallTimeMs", result.wallTimeMs());
+		summary.put("truncated", result.truncated());
+		summary.put("config", config);
+		
+		return summary;
+	}
 }
@@ -0,0 +1,131 @@
+package com.project.rate_limiter.monitoring;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StateStore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Decision counters, latency histograms and top denied keys per algorithm. The hot path only
+ * touches striped LongAdders; Micrometer reads them through function meters at scrape time.
+ * Denied keys are sampled 1 in rate.metrics.denied.sample.rate before reaching the top-K.
+ */
+@Component
+public class DecisionMetrics implements MeterBinder {
+	
+	private final boolean enabled;
+	private final int deniedSampleRate;
+	private final KeyStateStoreRegistry stores;
+	private final Map<RateLimiterAlgorithm, Counters> counters = new EnumMap<>(RateLimiterAlgorithm.class);
+	private final TopKeys deniedKeys;
+	
+	public DecisionMetrics(@Value("${rate.metrics.enabled:true}") boolean enabled,
+			@Value("${rate.metrics.denied.sample.rate:16}") int deniedSampleRate,
+			@Value("${rate.metrics.denied.top.keys:32}") int topKeys,
+			KeyStateStoreRegistry stores) {
+		this.enabled = enabled;
+		this.deniedSampleRate = Math.max(1, deniedSampleRate);
+		this.stores = stores;
+		this.deniedKeys = new TopKeys(topKeys);
+		for(RateLimiterAlgorithm algorithm: RateLimiterAlgorithm.values()) {
+			counters.put(algorithm, new Counters());
+		}
+	}
+	
+	// 0 when disabled, so the caller skips the clock read as well
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+	
+	public void record(RateLimiterAlgorithm algorithm, String key, boolean allowed, long startNanos) {
+		if(!enabled) {
+			return;
+		}
+		Counters algorithmCounters = counters.get(algorithm);
+		algorithmCounters.latency.record(System.nanoTime() - startNanos);
+		if(allowed) {
+			algorithmCounters.allowed.increment();
+			return;
+		}
+		algorithmCounters.denied.increment();
+		if(deniedSampleRate == 1 || ThreadLocalRandom.current().nextInt(deniedSampleRate) == 0) {
+			deniedKeys.offer(key, deniedSampleRate);
+		}
+	}
+	
+	public Map<RateLimiterAlgorithm, DecisionStats> snapshot() {
+		Map<RateLimiterAlgorithm, DecisionStats> result = new EnumMap<>(RateLimiterAlgorithm.class);
+		counters.forEach((algorithm, each) -> result.put(algorithm, new DecisionStats(
+				each.allowed.sum(), each.denied.sum(),
+				micros(each.latency.percentile(0.5)),
+				micros(each.latency.percentile(0.99)),
+				micros(each.latency.percentile(0.999)))));
+		return result;
+	}
+	
+	public List<TopKeys.KeyCount> topDeniedKeys(int limit) {
+		return deniedKeys.top(limit);
+	}
+	
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		counters.forEach((algorithm, each) -> {
+			FunctionCounter.builder("ratelimiter.decisions", each.allowed, LongAdder::sum)
+				.tags("algorithm", algorithm.name(), "outcome", "allowed")
+				.register(registry);
+			FunctionCounter.builder("ratelimiter.decisions", each.denied, LongAdder::sum)
+				.tags("algorithm", algorithm.name(), "outcome", "denied")
+				.register(registry);
+			FunctionTimer.builder("ratelimiter.decision.latency", each.latency, 
+					LatencyHistogram::count, LatencyHistogram::totalNanos, TimeUnit.NANOSECONDS)
+				.tag("algorithm", algorithm.name())
+				.register(registry);
+			for(double quantile: new double[] {0.5, 0.99, 0.999}) {
+				Gauge.builder("ratelimiter.decision.latency.percentile", each.latency, 
+						latency -> latency.percentile(quantile) / 1_000_000_000.0)
+					.tags("algorithm", algorithm.name(), "quantile", String.valueOf(quantile))
+					.baseUnit("seconds")
+					.register(registry);
+			}
+		});
+		
+		// policy stores are created on first use, long after binding
+		stores.onCreate(store -> {
+			String name = store.stats().name();
+			Gauge.builder("ratelimiter.store.size", store, StateStore::size)
+				.tag("store", name)
+				.register(registry);
+			FunctionCounter.builder("ratelimiter.store.evictions", store, each -> each.stats().idleEvictions())
+				.tags("store", name, "cause", "idle")
+				.register(registry);
+			FunctionCounter.builder("ratelimiter.store.evictions", store, each -> each.stats().capacityEvictions())
+				.tags("store", name, "cause", "capacity")
+				.register(registry);
+		});
+	}
+	
+	private static long micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+	
+	private static final class Counters {
+		private final LongAdder allowed = new LongAdder();
+		private final LongAdder denied = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+	}
+}
@@ -0,0 +1,9 @@
+package com.project.rate_limiter.monitoring;
+
+public record DecisionStats(
+		long allowed,
+		long denied,
+		long p50Micros,
+		long p99Micros,
+		long p999Micros
+) {}
@@ -0,0 +1,81 @@
+package com.project.rate_limiter.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear nanosecond histogram over striped counters: four buckets per power of two,
+ * so any reported percentile is at most 25% above the true value. Recording never blocks.
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+	
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	
+	public LatencyHistogram() {
+		for(int i=0; i<BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+	
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		buckets[index(value)].increment();
+		count.increment();
+		totalNanos.add(value);
+	}
+	
+	public long count() {
+		return count.sum();
+	}
+	
+	public long totalNanos() {
+		return totalNanos.sum();
+	}
+	
+	// upper bound of the bucket holding the given quantile, 0 when nothing was recorded
+	public long percentile(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for(int i=0; i<BUCKETS; i++) {
+			snapshot[i] = buckets[i].sum();
+			total += snapshot[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for(int i=0; i<BUCKETS; i++) {
+			seen += snapshot[i];
+			if(seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+	
+	static int index(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	static long upperBound(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = index & (SUB_BUCKETS - 1);
+		long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
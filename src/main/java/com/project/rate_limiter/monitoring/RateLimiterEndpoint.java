@@ -0,0 +1,60 @@
+package com.project.rate_limiter.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.cluster.ClusterRouter;
+import com.project.rate_limiter.concurrency.AdaptiveConcurrencyLimiter;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.sketch.HeavyHitterGate;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreStats;
+
+@Component
+@Endpoint(id = "ratelimiter")
+public class RateLimiterEndpoint {
+	
+	private final KeyStateStoreRegistry stores;
+	private final DecisionMetrics metrics;
+	private final PolicyEngine policies;
+	private final HeavyHitterGate heavyHitters;
+	private final ClusterRouter cluster;
+	private final AdaptiveConcurrencyLimiter concurrency;
+	
+	public RateLimiterEndpoint(KeyStateStoreRegistry stores, DecisionMetrics metrics, PolicyEngine policies, 
+			HeavyHitterGate heavyHitters, ClusterRouter cluster, AdaptiveConcurrencyLimiter concurrency) {
+		this.stores = stores;
+		this.metrics = metrics;
+		this.policies = policies;
+		this.heavyHitters = heavyHitters;
+		this.cluster = cluster;
+		this.concurrency = concurrency;
+	}
+	
+	@ReadOperation
+	public Map<String, Object> stores() {
+		List<StoreStats> stats = stores.stats();
+		
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("trackedKeys", stats.stream().mapToLong(StoreStats::size).sum());
+		body.put("stores", stats);
+		body.put("decisions", metrics.snapshot());
+		body.put("topDeniedKeys", metrics.topDeniedKeys(10));
+		if(heavyHitters.enabled()) {
+			body.put("heavyHitters", heavyHitters.heavyHitters(10));
+		}
+		if(cluster.enabled()) {
+			body.put("cluster", Map.of("self", cluster.self(), "liveNodes", cluster.liveNodes()));
+		}
+		if(concurrency.enabled()) {
+			body.put("concurrency", concurrency.stats());
+		}
+		body.put("policies", policies.policies());
+		return body;
+	}
+}
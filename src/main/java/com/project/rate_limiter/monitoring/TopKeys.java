@@ -0,0 +1,73 @@
+package com.project.rate_limiter.monitoring;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Space-Saving heavy hitters: keeps at most capacity counters and, when full, reuses the
+ * smallest one for a new key. Any key seen more than total/capacity times is guaranteed
+ * to be present. Offers that find the lock taken are dropped instead of waiting.
+ */
+public class TopKeys {
+	
+	private final int capacity;
+	private final Map<String, long[]> counters;
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	public TopKeys(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Top keys capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.counters = new HashMap<>(capacity * 2);
+	}
+	
+	public void offer(String key, long weight) {
+		if(!lock.tryLock()) {
+			return;
+		}
+		try {
+			long[] counter = counters.get(key);
+			if(counter != null) {
+				counter[0] += weight;
+				return;
+			}
+			if(counters.size() < capacity) {
+				counters.put(key, new long[] {weight, 0});
+				return;
+			}
+			
+			String minKey = null;
+			long[] min = null;
+			for(Map.Entry<String, long[]> entry: counters.entrySet()) {
+				if(min == null || entry.getValue()[0] < min[0]) {
+					minKey = entry.getKey();
+					min = entry.getValue();
+				}
+			}
+			counters.remove(minKey);
+			counters.put(key, new long[] {min[0] + weight, min[0]});
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	public List<KeyCount> top(int limit) {
+		List<KeyCount> result = new ArrayList<>();
+		lock.lock();
+		try {
+			counters.forEach((key, counter) -> result.add(new KeyCount(key, counter[0], counter[1])));
+		} finally {
+			lock.unlock();
+		}
+		result.sort(Comparator.comparingLong(KeyCount::count).reversed());
+		return result.size() > limit ? result.subList(0, limit) : result;
+	}
+	
+	// count may overestimate by at most error
+	public record KeyCount(String key, long count, long error) {}
+}
@@ -0,0 +1,58 @@
+package com.project.rate_limiter.policy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.project.rate_limiter.store.PackedState;
+
+/**
+ * One limit of a COMPOSITE policy: limit requests per windowMs, or a bucket of limit
+ * tokens refilled at refillRate per second. Exactly one of the two must be set.
+ */
+public record LimitComponent(
+		int limit,
+		long windowMs,
+		int refillRate
+) {
+	
+	// "10/1000,500/60000,20@5": limit/windowMs for windows, limit@refillRate for buckets
+	public static List<LimitComponent> parse(String spec) {
+		List<LimitComponent> components = new ArrayList<>();
+		for(String part: spec.split(",")) {
+			String component = part.trim();
+			if(component.isEmpty()) {
+				continue;
+			}
+			int window = component.indexOf('/');
+			int bucket = component.indexOf('@');
+			try {
+				if(window > 0) {
+					components.add(new LimitComponent(Integer.parseInt(component.substring(0, window).trim()), 
+							Long.parseLong(component.substring(window + 1).trim()), 0));
+				} else if(bucket > 0) {
+					components.add(new LimitComponent(Integer.parseInt(component.substring(0, bucket).trim()), 
+							0, Integer.parseInt(component.substring(bucket + 1).trim())));
+				} else {
+					throw new IllegalArgumentException("Expected limit/windowMs or limit@refillRate but was " + component);
+				}
+			} catch(NumberFormatException ex) {
+				throw new IllegalArgumentException("Invalid composite limit " + component, ex);
+			}
+		}
+		return check("composite", components);
+	}
+	
+	static List<LimitComponent> check(String name, List<LimitComponent> components) {
+		if(components == null || components.isEmpty()) {
+			throw new IllegalArgumentException("Composite policy " + name + " needs at least one limit");
+		}
+		for(LimitComponent component: components) {
+			if(component.limit() <= 0 || (component.windowMs() > 0) == (component.refillRate() > 0)) {
+				throw new IllegalArgumentException("Every limit of " + name 
+						+ " needs a positive limit and either a windowMs or a refillRate");
+			}
+			PackedState.checkCount("limit of " + name, component.limit());
+		}
+		return List.copyOf(components);
+	}
+}
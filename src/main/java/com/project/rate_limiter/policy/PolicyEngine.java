@@ -0,0 +1,91 @@
+package com.project.rate_limiter.policy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.service.RateLimiterService;
+
+/**
+ * Resolves (tenant, route, method) to a policy from the JSON file at rate.policy.file.
+ * The file is compiled into an immutable table and published through a volatile field,
+ * so a reload never blocks resolution and key state, which is held per policy name by
+ * the services, survives it. A broken file fails startup, while a broken reload is
+ * logged and the previous table stays in place.
+ */
+@Component
+public class PolicyEngine {
+	
+	private static final Logger log = LoggerFactory.getLogger(PolicyEngine.class);
+	
+	private final Path file;
+	private final ObjectMapper mapper;
+	private final Set<RateLimiterAlgorithm> supported = EnumSet.noneOf(RateLimiterAlgorithm.class);
+	private volatile PolicyTable table = PolicyTable.EMPTY;
+	private long loadedModified = Long.MIN_VALUE;
+	
+	public PolicyEngine(@Value("${rate.policy.file:}") String file, 
+			ObjectMapper mapper, List<RateLimiterService> services) {
+		this.file = file == null || file.isBlank() ? null : Path.of(file);
+		this.mapper = mapper;
+		for(RateLimiterService service: services) {
+			if(service.supportsPolicies()) {
+				supported.add(service.algorithm());
+			}
+		}
+		if(this.file != null) {
+			load();
+		}
+	}
+	
+	// null when no policy matches, the caller then falls back to the configured defaults
+	public RateLimitPolicy resolve(String tenant, String path, String method) {
+		return table.resolve(tenant, path, method);
+	}
+	
+	// null when the current table has no policy of that name
+	public RateLimitPolicy named(String name) {
+		return table.named(name);
+	}
+	
+	public List<RateLimitPolicy> policies() {
+		return table.policies();
+	}
+	
+	@Scheduled(fixedDelayString = "${rate.policy.reload.interval.ms:5000}")
+	public synchronized void reloadIfChanged() {
+		if(file == null) {
+			return;
+		}
+		try {
+			if(Files.getLastModifiedTime(file).toMillis() != loadedModified) {
+				load();
+			}
+		} catch(IOException | RuntimeException ex) {
+			log.warn("Keeping the current rate limit policies, reloading {} failed: {}", file, ex.getMessage());
+		}
+	}
+	
+	private synchronized void load() {
+		try {
+			long modified = Files.getLastModifiedTime(file).toMillis();
+			PolicyFile parsed = mapper.readValue(file.toFile(), PolicyFile.class);
+			table = PolicyTable.compile(parsed.policies(), supported);
+			loadedModified = modified;
+			log.info("Loaded {} rate limit policies from {}", table.policies().size(), file);
+		} catch(IOException ex) {
+			throw new IllegalStateException("Cannot read rate limit policies from " + file, ex);
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package com.project.rate_limiter.policy;
+
+import java.util.List;
+
+public record PolicyFile(
+		List<PolicyRule> policies
+) {}
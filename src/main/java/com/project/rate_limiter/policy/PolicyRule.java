@@ -0,0 +1,22 @@
+package com.project.rate_limiter.policy;
+
+import java.util.List;
+
+/**
+ * One entry of the policy file. tenant and method default to any ("*"); route segments
+ * match literally, "*" matches one segment and a trailing "**" any number of them.
+ * limits only applies to COMPOSITE policies. cost, when set, is what each matching request
+ * consumes regardless of the X-RateLimit-Cost header.
+ */
+public record PolicyRule(
+		String name,
+		String tenant,
+		String route,
+		String method,
+		String algorithm,
+		int limit,
+		long windowMs,
+		int refillRate,
+		List<LimitComponent> limits,
+		Integer cost
+) {}
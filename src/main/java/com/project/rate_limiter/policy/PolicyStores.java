@@ -0,0 +1,53 @@
+package com.project.rate_limiter.policy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * One state store per policy name, created on first use and kept across reloads. The store
+ * callbacks read the parameters through the entry, so a reload that changes a policy keeps
+ * its key state and only changes how that state is evaluated.
+ */
+public final class PolicyStores<T> {
+	
+	private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+	private final Function<Entry<T>, T> factory;
+	
+	public PolicyStores(Function<Entry<T>, T> factory) {
+		this.factory = factory;
+	}
+	
+	public Entry<T> get(RateLimitPolicy policy) {
+		Entry<T> entry = entries.get(policy.name());
+		if(entry == null) {
+			entry = entries.computeIfAbsent(policy.name(), name -> {
+				Entry<T> created = new Entry<>(policy);
+				created.store = factory.apply(created);
+				return created;
+			});
+		}
+		if(entry.policy != policy) {
+			entry.policy = policy;
+		}
+		return entry;
+	}
+	
+	public static final class Entry<T> {
+		
+		private volatile RateLimitPolicy policy;
+		private T store;
+		
+		private Entry(RateLimitPolicy policy) {
+			this.policy = policy;
+		}
+		
+		public RateLimitPolicy policy() {
+			return policy;
+		}
+		
+		public T store() {
+			return store;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.project.rate_limiter.policy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.store.PackedState;
+
+/**
+ * Immutable, compiled form of a policy file: one route trie per tenant plus one for any tenant.
+ * A tenant's own policies are tried before the ones for any tenant.
+ */
+final class PolicyTable {
+	
+	static final PolicyTable EMPTY = new PolicyTable(Map.of(), null, List.of());
+	
+	private static final String ANY = "*";
+	
+	private final Map<String, RouteTrie> tenants;
+	private final RouteTrie anyTenant;
+	private final List<RateLimitPolicy> policies;
+	private final Map<String, RateLimitPolicy> named = new HashMap<>();
+	
+	private PolicyTable(Map<String, RouteTrie> tenants, RouteTrie anyTenant, List<RateLimitPolicy> policies) {
+		this.tenants = tenants;
+		this.anyTenant = anyTenant;
+		this.policies = policies;
+		for(RateLimitPolicy policy: policies) {
+			named.put(policy.name(), policy);
+		}
+	}
+	
+	static PolicyTable compile(List<PolicyRule> rules, Set<RateLimiterAlgorithm> supported) {
+		if(rules == null || rules.isEmpty()) {
+			return EMPTY;
+		}
+		
+		Map<String, RouteTrie> tenants = new HashMap<>();
+		RouteTrie anyTenant = new RouteTrie();
+		Set<String> names = new HashSet<>();
+		List<RateLimitPolicy> policies = new ArrayList<>();
+		
+		for(PolicyRule rule: rules) {
+			RateLimitPolicy policy = policy(rule, supported);
+			if(!names.add(policy.name())) {
+				throw new IllegalArgumentException("Duplicate policy name " + policy.name());
+			}
+			if(rule.route() == null || !rule.route().startsWith("/")) {
+				throw new IllegalArgumentException("Policy " + policy.name() + " needs a route starting with '/'");
+			}
+			
+			String tenant = orAny(rule.tenant());
+			String method = orAny(rule.method()).toUpperCase(Locale.ROOT);
+			RouteTrie trie = tenant.equals(ANY) ? anyTenant : tenants.computeIfAbsent(tenant, key -> new RouteTrie());
+			trie.add(rule.route(), method, policy);
+			policies.add(policy);
+		}
+		
+		tenants.values().forEach(RouteTrie::freeze);
+		return new PolicyTable(Map.copyOf(tenants), anyTenant.freeze(), List.copyOf(policies));
+	}
+	
+	RateLimitPolicy resolve(String tenant, String path, String method) {
+		if(tenant != null && !tenants.isEmpty()) {
+			RouteTrie trie = tenants.get(tenant);
+			RateLimitPolicy policy = trie == null ? null : trie.resolve(path, method);
+			if(policy != null) {
+				return policy;
+			}
+		}
+		return anyTenant == null ? null : anyTenant.resolve(path, method);
+	}
+	
+	List<RateLimitPolicy> policies() {
+		return policies;
+	}
+	
+	RateLimitPolicy named(String name) {
+		return named.get(name);
+	}
+	
+	private static RateLimitPolicy policy(PolicyRule rule, Set<RateLimiterAlgorithm> supported) {
+		if(rule.name() == null || rule.name().isBlank()) {
+			throw new IllegalArgumentException("Every policy needs a name");
+		}
+		RateLimiterAlgorithm algorithm = RateLimiterAlgorithm.from(rule.algorithm());
+		if(!supported.contains(algorithm)) {
+			throw new IllegalArgumentException("Policy " + rule.name() + ": " + algorithm + " does not support policies on this backend");
+		}
+		if(algorithm == RateLimiterAlgorithm.COMPOSITE) {
+			List<LimitComponent> components = LimitComponent.check(rule.name(), rule.limits());
+			int tightest = components.stream().mapToInt(LimitComponent::limit).min().getAsInt();
+			return new RateLimitPolicy(rule.name(), algorithm, tightest, 0, 0, components, cost(rule, tightest));
+		}
+		
+		positive(rule.name(), "limit", rule.limit());
+		PackedState.checkCount("limit of policy " + rule.name(), rule.limit());
+		
+		switch(algorithm) {
+			case TOKEN_BUCKET, GCRA -> positive(rule.name(), "refillRate", rule.refillRate());
+			default -> positive(rule.name(), "windowMs", rule.windowMs());
+		}
+		return new RateLimitPolicy(rule.name(), algorithm, rule.limit(), rule.windowMs(), rule.refillRate(), List.of(), 
+				cost(rule, rule.limit()));
+	}
+	
+	// a cost above the limit could never be admitted
+	private static int cost(PolicyRule rule, int limit) {
+		if(rule.cost() == null) {
+			return 0;
+		}
+		positive(rule.name(), "cost", rule.cost());
+		if(rule.cost() > limit) {
+			throw new IllegalArgumentException("Policy " + rule.name() + " has cost " + rule.cost() + " above its limit " + limit);
+		}
+		return rule.cost();
+	}
+	
+	private static void positive(String name, String field, long value) {
+		if(value <= 0) {
+			throw new IllegalArgumentException("Policy " + name + " needs a positive " + field);
+		}
+	}
+	
+	private static String orAny(String value) {
+		return value == null || value.isBlank() ? ANY : value.trim();
+	}
+}
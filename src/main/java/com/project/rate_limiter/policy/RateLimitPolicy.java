@@ -0,0 +1,28 @@
+package com.project.rate_limiter.policy;
+
+import java.util.List;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+
+/**
+ * Algorithm and parameters resolved for a request. limit is the request limit of the window
+ * algorithms and the capacity of TOKEN_BUCKET and GCRA; windowMs only applies to the former,
+ * refillRatePerSecond only to the latter. COMPOSITE policies carry their limits as components
+ * instead. The name identifies the key state across reloads. cost is what one request consumes;
+ * 0 leaves it to the X-RateLimit-Cost header, which defaults to 1.
+ */
+public record RateLimitPolicy(
+		String name,
+		RateLimiterAlgorithm algorithm,
+		int limit,
+		long windowMs,
+		int refillRatePerSecond,
+		List<LimitComponent> components,
+		int cost
+) {
+	
+	public RateLimitPolicy(String name, RateLimiterAlgorithm algorithm, int limit, long windowMs, 
+			int refillRatePerSecond, List<LimitComponent> components) {
+		this(name, algorithm, limit, windowMs, refillRatePerSecond, components, 0);
+	}
+}
@@ -0,0 +1,166 @@
+package com.project.rate_limiter.policy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Path segment trie over route patterns. Children are frozen into open-addressing arrays
+ * and probed with the hash of the path region, so a lookup walks the path once without
+ * allocating. Literal segments win over "*", which wins over a trailing "**".
+ */
+final class RouteTrie {
+	
+	private static final String ANY = "*";
+	private static final String ANY_DEPTH = "**";
+	
+	private final Node root = new Node();
+	
+	void add(String route, String method, RateLimitPolicy policy) {
+		Node node = root;
+		String[] segments = route.split("/");
+		for(int i=0; i<segments.length; i++) {
+			String segment = segments[i];
+			if(segment.isEmpty()) {
+				continue;
+			}
+			if(segment.equals(ANY_DEPTH)) {
+				if(i != segments.length - 1) {
+					throw new IllegalArgumentException("'**' must be the last segment of route " + route);
+				}
+				node.tail.put(method, policy, route);
+				return;
+			}
+			node = segment.equals(ANY) ? node.wildcard() : node.child(segment);
+		}
+		node.exact.put(method, policy, route);
+	}
+	
+	RouteTrie freeze() {
+		root.freeze();
+		return this;
+	}
+	
+	RateLimitPolicy resolve(String path, String method) {
+		return match(root, path, 0, method);
+	}
+	
+	private static RateLimitPolicy match(Node node, String path, int from, String method) {
+		int start = from;
+		while(start < path.length() && path.charAt(start) == '/') {
+			start++;
+		}
+		if(start == path.length()) {
+			RateLimitPolicy exact = node.exact.get(method);
+			return exact != null ? exact : node.tail.get(method);
+		}
+		
+		int end = path.indexOf('/', start);
+		if(end < 0) {
+			end = path.length();
+		}
+		
+		Node literal = node.find(path, start, end);
+		if(literal != null) {
+			RateLimitPolicy policy = match(literal, path, end, method);
+			if(policy != null) {
+				return policy;
+			}
+		}
+		if(node.wildcard != null) {
+			RateLimitPolicy policy = match(node.wildcard, path, end, method);
+			if(policy != null) {
+				return policy;
+			}
+		}
+		return node.tail.get(method);
+	}
+	
+	private static int hash(String path, int start, int end) {
+		int hash = 0;
+		for(int i=start; i<end; i++) {
+			hash = 31 * hash + path.charAt(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static final class Node {
+		
+		private final MethodPolicies exact = new MethodPolicies();
+		private final MethodPolicies tail = new MethodPolicies();
+		private Map<String, Node> children = new HashMap<>();
+		private Node wildcard;
+		private String[] keys;
+		private Node[] nodes;
+		private int mask;
+		
+		Node child(String segment) {
+			return children.computeIfAbsent(segment, key -> new Node());
+		}
+		
+		Node wildcard() {
+			if(wildcard == null) {
+				wildcard = new Node();
+			}
+			return wildcard;
+		}
+		
+		void freeze() {
+			if(!children.isEmpty()) {
+				int size = Integer.highestOneBit(children.size() * 2 - 1) << 1;
+				keys = new String[size];
+				nodes = new Node[size];
+				mask = size - 1;
+				children.forEach((segment, node) -> {
+					int i = hash(segment, 0, segment.length()) & mask;
+					while(keys[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = segment;
+					nodes[i] = node;
+					node.freeze();
+				});
+			}
+			if(wildcard != null) {
+				wildcard.freeze();
+			}
+			children = null;
+		}
+		
+		Node find(String path, int start, int end) {
+			if(keys == null) {
+				return null;
+			}
+			int length = end - start;
+			for(int i = hash(path, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+				if(keys[i].length() == length && path.regionMatches(start, keys[i], 0, length)) {
+					return nodes[i];
+				}
+			}
+			return null;
+		}
+	}
+	
+	private static final class MethodPolicies {
+		
+		private final Map<String, RateLimitPolicy> byMethod = new HashMap<>();
+		private RateLimitPolicy anyMethod;
+		
+		void put(String method, RateLimitPolicy policy, String route) {
+			RateLimitPolicy previous = method.equals(ANY) ? anyMethod : byMethod.get(method);
+			if(previous != null) {
+				throw new IllegalArgumentException("Policies " + previous.name() + " and " + policy.name() 
+						+ " both match " + method + " " + route);
+			}
+			if(method.equals(ANY)) {
+				anyMethod = policy;
+			} else {
+				byMethod.put(method, policy);
+			}
+		}
+		
+		RateLimitPolicy get(String method) {
+			RateLimitPolicy policy = byMethod.isEmpty() ? null : byMethod.get(method);
+			return policy != null ? policy : anyMethod;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.project.rate_limiter.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.cluster.ClusterRouter;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.controller.dto.BatchCheck;
+import com.project.rate_limiter.controller.dto.BatchDecisionResponse;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.monitoring.DecisionMetrics;
+
+/**
+ * Decides several key/algorithm/cost checks in one call. Each check goes through the
+ * {@link ClusterRouter}, so it reaches the node owning its key like a single request does.
+ * In all-or-nothing mode every check is decided here at the same instant and, if any is
+ * denied, the admitted ones are refunded; refunds are not forwarded, so every key has to
+ * be owned by this node. Checks never hold a lock across each other, so a concurrent caller
+ * may briefly see units that are about to be refunded: the batch can over-deny, but never over-admit.
+ */
+@Service
+public class BatchDecisionService {
+	
+	@Value("${rate.batch.max.checks:32}")
+	private int MAX_CHECKS;
+	
+	@Value("${rate.request.limit.count}")
+	private int REQUEST_LIMIT;
+	
+	private final Map<RateLimiterAlgorithm, RateLimiterService> services = new EnumMap<>(RateLimiterAlgorithm.class);
+	private final CoarseClock clock;
+	private final DecisionMetrics metrics;
+	private final ClusterRouter cluster;
+	
+	public BatchDecisionService(List<RateLimiterService> services, CoarseClock clock, DecisionMetrics metrics,
+			ClusterRouter cluster) {
+		for(RateLimiterService service: services) {
+			this.services.put(service.algorithm(), service);
+		}
+		this.clock = clock;
+		this.metrics = metrics;
+		this.cluster = cluster;
+	}
+	
+	public BatchDecisionResponse decide(List<BatchCheck> checks, boolean allOrNothing) {
+		if(checks == null || checks.isEmpty()) {
+			throw new IllegalArgumentException("At least one check is required");
+		}
+		if(checks.size() > MAX_CHECKS) {
+			throw new IllegalArgumentException("At most " + MAX_CHECKS + " checks are allowed per batch");
+		}
+		
+		List<RateLimiterService> resolved = new ArrayList<>(checks.size());
+		for(BatchCheck check: checks) {
+			resolved.add(resolve(check, allOrNothing));
+		}
+		
+		long currentTime = clock.millis();
+		DecisionResult result = new DecisionResult();
+		List<RateLimiterDecision> decisions = new ArrayList<>(checks.size());
+		boolean allowed = true;
+		
+		for(int i=0; i<checks.size(); i++) {
+			BatchCheck check = checks.get(i);
+			RateLimiterService service = resolved.get(i);
+			
+			long start = metrics.start();
+			if(allOrNothing) {
+				service.decide(check.key(), currentTime, cost(check), result);
+			} else {
+				cluster.decide(service, check.key(), cost(check), null, result);
+			}
+			metrics.record(service.algorithm(), check.key(), result.isAllowed(), start);
+			
+			decisions.add(result.toDecision());
+			allowed &= result.isAllowed();
+		}
+		
+		if(allOrNothing && !allowed) {
+			refundAdmitted(checks, resolved, decisions, currentTime);
+		}
+		return new BatchDecisionResponse(allowed, decisions);
+	}
+	
+	// admitted checks are reported as they were decided, with their units given back
+	private void refundAdmitted(List<BatchCheck> checks, List<RateLimiterService> resolved, 
+			List<RateLimiterDecision> decisions, long currentTime) {
+		for(int i=0; i<checks.size(); i++) {
+			RateLimiterDecision decision = decisions.get(i);
+			if(!decision.isAllowed()) {
+				continue;
+			}
+			int cost = cost(checks.get(i));
+			resolved.get(i).refund(checks.get(i).key(), currentTime, cost);
+			decisions.set(i, new RateLimiterDecision(true, decision.remaining() + cost, 
+					decision.retryAfterMs(), decision.timeToFullMs()));
+		}
+	}
+	
+	private RateLimiterService resolve(BatchCheck check, boolean allOrNothing) {
+		if(check == null || check.key() == null || check.key().isBlank()) {
+			throw new IllegalArgumentException("Every check needs a key");
+		}
+		if(cost(check) < 1) {
+			throw new IllegalArgumentException("Cost must be at least 1 for key " + check.key());
+		}
+		
+		RateLimiterAlgorithm algorithm = RateLimiterAlgorithm.from(check.algorithm());
+		RateLimiterService service = services.get(algorithm);
+		if(service == null) {
+			throw new IllegalArgumentException(algorithm + " is not available");
+		}
+		// could never be admitted, and would have the sliding log grow by cost entries
+		int limit = service instanceof CompositeRateLimiterService composite ? composite.tightestLimit() : REQUEST_LIMIT;
+		if(cost(check) > limit) {
+			throw new IllegalArgumentException("Cost must be at most the limit of " + limit + " for key " + check.key());
+		}
+		if(allOrNothing && !service.refundable()) {
+			throw new IllegalArgumentException(algorithm + " does not support all-or-nothing batches on this backend");
+		}
+		if(allOrNothing && !cluster.decidesLocally(algorithm, check.key())) {
+			throw new IllegalArgumentException("Key " + check.key() + " is not decided on this node, "
+					+ "all-or-nothing batches need every key on the node they are sent to");
+		}
+		return service;
+	}
+	
+	private static int cost(BatchCheck check) {
+		return check.cost() == null ? 1 : check.cost();
+	}
+}
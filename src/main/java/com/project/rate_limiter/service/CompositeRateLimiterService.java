@@ -0,0 +1,259 @@
+package com.project.rate_limiter.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.entity.WindowCounter;
+import com.project.rate_limiter.policy.LimitComponent;
+import com.project.rate_limiter.policy.PolicyStores;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.store.KeyStateStore;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+
+/**
+ * Several limits per key, such as 10/s and 500/min and 20k/day, kept in one state record:
+ * one long per component, a sliding window counter for window limits and a GCRA arrival
+ * time for bucket limits. All components are checked under the key's monitor and a request
+ * consumes from every one of them or from none, reporting the most restrictive values.
+ */
+@Service
+public class CompositeRateLimiterService implements RateLimiterService {
+	
+	private static final long NANOS_PER_MS = 1_000_000L;
+	
+	private final List<LimitComponent> defaults;
+	
+	private final int tightestLimit;
+	
+	private final KeyStateStore<Limits> userLimits;
+	
+	// one store per policy, evaluated with that policy's components
+	private final PolicyStores<KeyStateStore<Limits>> policyStores;
+	
+	private final CoarseClock clock;
+	
+	public CompositeRateLimiterService(KeyStateStoreRegistry stores, CoarseClock clock,
+			@Value("${rate.composite.limits:${rate.request.limit.count}/${rate.request.limit.timeperiod}}") String limits) {
+		this.clock = clock;
+		this.defaults = LimitComponent.parse(limits);
+		this.tightestLimit = defaults.stream().mapToInt(LimitComponent::limit).min().getAsInt();
+		this.userLimits = stores.create("composite", 
+				currentTime -> initial(defaults, currentTime), 
+				(state, currentTime) -> fullAt(state, defaults, currentTime));
+		this.policyStores = new PolicyStores<>(entry -> stores.create("composite:" + entry.policy().name(), 
+				currentTime -> initial(entry.policy().components(), currentTime), 
+				(state, currentTime) -> fullAt(state, entry.policy().components(), currentTime)));
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.COMPOSITE;
+	}
+	
+	// the largest cost the default limits can ever admit, as policies take their tightest component
+	public int tightestLimit() {
+		return tightestLimit;
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decision(user, clock.millis());
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user, long currentTime) {
+		return decide(user, currentTime, new DecisionResult()).toDecision();
+	}
+	
+	@Override
+	public DecisionResult decide(String user, DecisionResult result) {
+		return decide(user, clock.millis(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return decide(user, currentTime, 1, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return decide(userLimits.get(user, currentTime), currentTime, cost, defaults, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, clock.millis(), cost, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), 1, policy, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		KeyStateStore<Limits> store = policyStores.get(policy).store();
+		return decide(store.get(user, currentTime), currentTime, cost, policy.components(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), cost, policy, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	@Override
+	public boolean refundable() {
+		return true;
+	}
+	
+	@Override
+	public void refund(String user, long currentTime, int cost) {
+		Limits limits = userLimits.get(user, currentTime);
+		
+		synchronized(limits) {
+			long[] state = limits.state;
+			for(int i=0; i<defaults.size(); i++) {
+				LimitComponent component = defaults.get(i);
+				if(component.windowMs() > 0) {
+					// only the window that admitted the request can give it back
+					long windowIndex = currentTime / component.windowMs();
+					if(WindowCounter.roll(state[i], windowIndex) == state[i]) {
+						state[i] -= Math.min(cost, WindowCounter.current(state[i]));
+					}
+				} else if(state[i] != 0) {
+					state[i] = Math.max(0, state[i] - emissionInterval(component) * cost);
+				}
+			}
+		}
+	}
+	
+	private DecisionResult decide(Limits limits, long currentTime, int cost, List<LimitComponent> components, DecisionResult result) {
+		synchronized(limits) {
+			// a reload changed the number of limits of the policy, only then is the key restarted
+			if(limits.state.length != components.size()) {
+				limits.state = initial(components, currentTime).state;
+			}
+			long[] state = limits.state;
+			boolean allowed = true;
+			long remaining = Long.MAX_VALUE;
+			long retryAfterMs = 0;
+			long resetInMs = 0;
+			
+			// first pass: every component has to admit the request
+			for(int i=0; i<components.size(); i++) {
+				LimitComponent component = components.get(i);
+				if(component.windowMs() > 0) {
+					long windowMs = component.windowMs();
+					long windowIndex = currentTime / windowMs;
+					long elapsed = currentTime - windowIndex * windowMs;
+					long overlap = windowMs - elapsed;
+					long rolled = WindowCounter.roll(state[i], windowIndex);
+					int previous = WindowCounter.previous(rolled);
+					int current = WindowCounter.current(rolled);
+					
+					// weighted counts scaled by windowMs, as in SlidingWindowCounterRateLimiterService
+					long capacity = component.limit() * windowMs;
+					long used = previous * overlap + (long) current * windowMs;
+					long weighted = used + (long) cost * windowMs;
+					
+					if(weighted <= capacity) {
+						remaining = Math.min(remaining, (capacity - weighted) / windowMs);
+						resetInMs = Math.max(resetInMs, overlap + windowMs);
+					} else {
+						allowed = false;
+						remaining = Math.min(remaining, Math.max(0, (capacity - used) / windowMs));
+						retryAfterMs = Math.max(retryAfterMs, SlidingWindowCounterRateLimiterService
+								.retryAfterMs(previous, current, elapsed, cost, component.limit(), windowMs));
+						resetInMs = Math.max(resetInMs, current > 0 ? overlap + windowMs : overlap);
+					}
+				} else {
+					long now = currentTime * NANOS_PER_MS;
+					long emissionInterval = emissionInterval(component);
+					long burstWindow = emissionInterval * component.limit();
+					long start = Math.max(state[i], now);
+					long newTat = start + emissionInterval * cost;
+					long allowAt = newTat - burstWindow;
+					
+					if(now >= allowAt) {
+						remaining = Math.min(remaining, (now - allowAt) / emissionInterval);
+						resetInMs = Math.max(resetInMs, ceilMillis(newTat - now));
+					} else {
+						allowed = false;
+						remaining = Math.min(remaining, Math.max(0, (now + burstWindow - start) / emissionInterval));
+						retryAfterMs = Math.max(retryAfterMs, ceilMillis(allowAt - now));
+						resetInMs = Math.max(resetInMs, ceilMillis(start - now));
+					}
+				}
+			}
+			
+			// second pass: consume from all of them
+			if(allowed) {
+				for(int i=0; i<components.size(); i++) {
+					state[i] = consume(state[i], components.get(i), currentTime, cost);
+				}
+			}
+			return result.set(allowed, (int) remaining, allowed ? 0L : retryAfterMs, resetInMs);
+		}
+	}
+	
+	private static long consume(long state, LimitComponent component, long currentTime, int cost) {
+		if(component.windowMs() > 0) {
+			long windowIndex = currentTime / component.windowMs();
+			long rolled = WindowCounter.roll(state, windowIndex);
+			return WindowCounter.pack(windowIndex, WindowCounter.previous(rolled), WindowCounter.current(rolled) + cost);
+		}
+		return Math.max(state, currentTime * NANOS_PER_MS) + emissionInterval(component) * cost;
+	}
+	
+	private static Limits initial(List<LimitComponent> components, long currentTime) {
+		long[] state = new long[components.size()];
+		for(int i=0; i<state.length; i++) {
+			long windowMs = components.get(i).windowMs();
+			state[i] = windowMs > 0 ? WindowCounter.pack(currentTime / windowMs, 0, 0) : 0L;
+		}
+		return new Limits(state);
+	}
+	
+	// the key is idle once every component is full again
+	private static long fullAt(Limits limits, List<LimitComponent> components, long currentTime) {
+		synchronized(limits) {
+			long[] state = limits.state;
+			long fullAt = 0;
+			for(int i=0; i<Math.min(state.length, components.size()); i++) {
+				long windowMs = components.get(i).windowMs();
+				fullAt = Math.max(fullAt, windowMs > 0 
+						? WindowCounter.fullAt(state[i], currentTime, windowMs) 
+						: ceilMillis(state[i]));
+			}
+			return fullAt;
+		}
+	}
+	
+	private static long emissionInterval(LimitComponent component) {
+		return 1_000_000_000L / component.refillRate();
+	}
+	
+	private static long ceilMillis(long nanos) {
+		return (nanos + NANOS_PER_MS - 1) / NANOS_PER_MS;
+	}
+	
+	// one long per component, guarded by the monitor of this holder
+	private static final class Limits {
+		private long[] state;
+		
+		private Limits(long[] state) {
+			this.state = state;
+		}
+	}
+}
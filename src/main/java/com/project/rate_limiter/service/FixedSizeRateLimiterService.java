@@ -1,17 +1,25 @@
 package com.project.rate_limiter.service;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
 import com.project.rate_limiter.entity.RateLimiterDecision;
-import com.project.rate_limiter.entity.UserRequestInfo;
+import com.project.rate_limiter.policy.PolicyStores;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.LongCell;
+import com.project.rate_limiter.store.LongStateStore;
+import com.project.rate_limiter.store.PackedState;
+
+import jakarta.annotation.PostConstruct;
 
 @Service
-public class FixedSizeRateLimiterService {
+@ConditionalOnProperty(name = "rate.store.backend", havingValue = "memory", matchIfMissing = true)
+public class FixedSizeRateLimiterService implements RateLimiterService {
 	
 	@Value("${rate.request.limit.count}")
 	private int REQUEST_LIMIT;
@@ -19,43 +27,136 @@ public class FixedSizeRateLimiterService {
 	@Value("${rate.request.limit.timeperiod}")
 	private long TIME_WINDOW_MS;
 	
-	private Map<String, UserRequestInfo> userRequestMap = new HashMap<>();
+	// packed (limitWindowStart, numberOfRequestsMade) per user
+	private final LongStateStore userRequestMap;
+	
+	// one store per policy, evaluated with that policy's parameters
+	private final PolicyStores<LongStateStore> policyStores;
+	
+	private final CoarseClock clock;
+	
+	public FixedSizeRateLimiterService(KeyStateStoreRegistry stores, CoarseClock clock) {
+		this.clock = clock;
+		this.userRequestMap = stores.createLong("fixed_window", 
+				currentTime -> PackedState.pack(currentTime, 0),
+				(userInfo, currentTime) -> PackedState.timestamp(userInfo) + TIME_WINDOW_MS + 1);
+		this.policyStores = new PolicyStores<>(entry -> stores.createLong("fixed_window:" + entry.policy().name(), 
+				currentTime -> PackedState.pack(currentTime, 0),
+				(userInfo, currentTime) -> PackedState.timestamp(userInfo) + entry.policy().windowMs() + 1));
+	}
+	
+	@PostConstruct
+	void validate() {
+		PackedState.checkCount("rate.request.limit.count", REQUEST_LIMIT);
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.FIXED_WINDOW;
+	}
 	
+	@Override
 	public RateLimiterDecision decision(String user) {
-		long now = Instant.now().toEpochMilli();
-		return decision(user, now);
+		return decision(user, clock.millis());
 	}
 	
+	@Override
 	public RateLimiterDecision decision(String user, long currentTime) {
-		UserRequestInfo userInfo =  userRequestMap.getOrDefault(user, new UserRequestInfo(currentTime, 0, null));
-		
-		// window reset?
-		if(currentTime - userInfo.getLimitWindowStart() > TIME_WINDOW_MS) {
-			userInfo.setNumberOfRequestsMade(1);
-			userInfo.setLimitWindowStart(currentTime);
-			userRequestMap.put(user, userInfo);
+		return decide(user, currentTime, new DecisionResult()).toDecision();
+	}
+	
+	@Override
+	public DecisionResult decide(String user, DecisionResult result) {
+		return decide(user, clock.millis(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return decide(user, currentTime, 1, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return decide(userRequestMap.cell(user, currentTime), currentTime, cost, REQUEST_LIMIT, TIME_WINDOW_MS, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, clock.millis(), cost, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), 1, policy, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		PolicyStores.Entry<LongStateStore> entry = policyStores.get(policy);
+		return decide(entry.store().cell(user, currentTime), currentTime, cost, policy.limit(), policy.windowMs(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), cost, policy, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	private DecisionResult decide(LongCell userInfo, long currentTime, int cost, int limit, long windowMs, DecisionResult result) {
+		while(true) {
+			long state = userInfo.get();
+			long limitWindowStart = PackedState.timestamp(state);
+			int numberOfRequestsMade = PackedState.count(state);
 			
-			int remaining = Math.max(0, REQUEST_LIMIT-1);
-			long resetInMs = TIME_WINDOW_MS;
-			return new RateLimiterDecision(true, remaining, 0L, resetInMs);
-		}
-		
-		// within current window
-		if(userInfo.getNumberOfRequestsMade() < REQUEST_LIMIT) {
-			userInfo.setNumberOfRequestsMade(userInfo.getNumberOfRequestsMade()+1);
-			userRequestMap.put(user, userInfo);
+			// window reset?
+			if(currentTime - limitWindowStart > windowMs) {
+				limitWindowStart = currentTime;
+				numberOfRequestsMade = 0;
+			}
+			long resetInMs = windowMs - (currentTime - limitWindowStart);
+			
+			// within current window; in long, a huge cost must not wrap around
+			if((long) numberOfRequestsMade + cost <= limit) {
+				if(!userInfo.compareAndSet(state, PackedState.pack(limitWindowStart, numberOfRequestsMade+cost))) {
+					continue;
+				}
+				
+				int remaining = limit - (numberOfRequestsMade+cost);
+				return result.set(true, remaining, 0L, resetInMs);
+			}
 			
-			int remaining = Math.max(0, REQUEST_LIMIT - userInfo.getNumberOfRequestsMade());
-			long resetInMs = TIME_WINDOW_MS - (currentTime - userInfo.getLimitWindowStart());
-			return new RateLimiterDecision(true, remaining, 0L, resetInMs);
+			// blocked
+			return result.set(false, limit - numberOfRequestsMade, resetInMs, resetInMs);
 		}
-		
-		// blocked
-		long resetInMs = TIME_WINDOW_MS - (currentTime - userInfo.getLimitWindowStart());
-		return new RateLimiterDecision(false, 0, resetInMs, resetInMs);
 	}
 	
-	public boolean isAllowed(String user) {
-		return decision(user).isAllowed();
+	@Override
+	public boolean refundable() {
+		return true;
+	}
+	
+	@Override
+	public void refund(String user, long currentTime, int cost) {
+		LongCell userInfo = userRequestMap.cell(user, currentTime);
+		
+		while(true) {
+			long state = userInfo.get();
+			long limitWindowStart = PackedState.timestamp(state);
+			int numberOfRequestsMade = PackedState.count(state);
+			
+			// the window that admitted the request is already gone
+			if(limitWindowStart > currentTime || currentTime - limitWindowStart > TIME_WINDOW_MS) {
+				return;
+			}
+			
+			int refunded = Math.max(0, numberOfRequestsMade - cost);
+			if(userInfo.compareAndSet(state, PackedState.pack(limitWindowStart, refunded))) {
+				return;
+			}
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package com.project.rate_limiter.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.policy.PolicyStores;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.LongCell;
+import com.project.rate_limiter.store.LongStateStore;
+
+/**
+ * Generic cell rate algorithm: token bucket semantics where the only per-key state is
+ * the theoretical arrival time (TAT) of the next request, kept in nanoseconds.
+ * A request is admitted while the TAT is at most one burst ahead of now.
+ */
+@Service
+public class GcraRateLimiterService implements RateLimiterService {
+	
+	private static final long NANOS_PER_MS = 1_000_000L;
+	
+	@Value("${rate.request.limit.count}")
+	private int CAPACITY;
+	
+	@Value("${rate.request.limit.refill.rate}")
+	private int REFILL_RATE_PER_SECOND;
+	
+	// theoretical arrival time in epoch nanoseconds, 0 for a full bucket
+	private final LongStateStore arrivals;
+	
+	// one store per policy, evaluated with that policy's parameters
+	private final PolicyStores<LongStateStore> policyStores;
+	
+	private final CoarseClock clock;
+	
+	public GcraRateLimiterService(KeyStateStoreRegistry stores, CoarseClock clock) {
+		this.clock = clock;
+		this.arrivals = stores.createLong("gcra", 
+				currentTime -> 0L, 
+				(arrival, currentTime) -> ceilMillis(arrival));
+		this.policyStores = new PolicyStores<>(entry -> stores.createLong("gcra:" + entry.policy().name(), 
+				currentTime -> 0L, 
+				(arrival, currentTime) -> ceilMillis(arrival)));
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.GCRA;
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decision(user, clock.millis());
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user, long currentTime) {
+		return decide(user, currentTime, new DecisionResult()).toDecision();
+	}
+	
+	@Override
+	public DecisionResult decide(String user, DecisionResult result) {
+		return decide(user, clock.millis(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return decide(user, currentTime, 1, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return decide(arrivals.cell(user, currentTime), currentTime, cost, CAPACITY, REFILL_RATE_PER_SECOND, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, clock.millis(), cost, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), 1, policy, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		PolicyStores.Entry<LongStateStore> entry = policyStores.get(policy);
+		return decide(entry.store().cell(user, currentTime), currentTime, cost, policy.limit(), policy.refillRatePerSecond(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), cost, policy, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	private DecisionResult decide(LongCell arrival, long currentTime, int cost, int capacity, int refillRate, DecisionResult result) {
+		long now = currentTime * NANOS_PER_MS;
+		long emissionInterval = 1_000_000_000L / refillRate;
+		long burstWindow = emissionInterval * capacity;
+		
+		while(true) {
+			long tat = arrival.get();
+			long newTat = Math.max(tat, now) + emissionInterval * cost;
+			long allowAt = newTat - burstWindow;
+			
+			if(now < allowAt) {
+				int remaining = (int) Math.max(0, (now + burstWindow - Math.max(tat, now)) / emissionInterval);
+				long retryAfterMs = ceilMillis(allowAt - now);
+				long resetInMs = ceilMillis(Math.max(tat, now) - now);
+				return result.set(false, remaining, retryAfterMs, resetInMs);
+			}
+			
+			if(!arrival.compareAndSet(tat, newTat)) {
+				continue;
+			}
+			
+			int remaining = (int) ((now - allowAt) / emissionInterval);
+			long resetInMs = ceilMillis(newTat - now);
+			return result.set(true, remaining, 0L, resetInMs);
+		}
+	}
+	
+	@Override
+	public boolean refundable() {
+		return true;
+	}
+	
+	@Override
+	public void refund(String user, long currentTime, int cost) {
+		LongCell arrival = arrivals.cell(user, currentTime);
+		long emissionInterval = 1_000_000_000L / REFILL_RATE_PER_SECOND;
+		
+		while(true) {
+			long tat = arrival.get();
+			if(tat == 0 || arrival.compareAndSet(tat, Math.max(0, tat - emissionInterval * cost))) {
+				return;
+			}
+		}
+	}
+	
+	private static long ceilMillis(long nanos) {
+		return (nanos + NANOS_PER_MS - 1) / NANOS_PER_MS;
+	}
+}
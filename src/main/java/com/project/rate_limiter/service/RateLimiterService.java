@@ -0,0 +1,81 @@
+package com.project.rate_limiter.service;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+public interface RateLimiterService {
+	
+	RateLimiterAlgorithm algorithm();
+	
+	RateLimiterDecision decision(String user);
+	
+	RateLimiterDecision decision(String user, long currentTime);
+	
+	// in-memory services never wait, so by default the future completes on the caller;
+	// remote backends override it to complete without holding a thread during the round trip
+	default CompletableFuture<RateLimiterDecision> decisionAsync(String user) {
+		return CompletableFuture.completedFuture(decision(user));
+	}
+	
+	// allocation-free variants filling a caller-owned result; in-memory services override them
+	default DecisionResult decide(String user, DecisionResult result) {
+		return result.set(decision(user));
+	}
+	
+	default DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return result.set(decision(user, currentTime));
+	}
+	
+	// consumes cost units at once; a cost above the limit is never admitted
+	default DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		if(cost != 1) {
+			throw new UnsupportedOperationException(algorithm() + " does not support weighted cost on this backend");
+		}
+		return decide(user, currentTime, result);
+	}
+	
+	// consumes cost units at the service's own time: its coarse clock in memory, the server clock on Redis
+	default DecisionResult decide(String user, int cost, DecisionResult result) {
+		if(cost != 1) {
+			throw new UnsupportedOperationException(algorithm() + " does not support weighted cost on this backend");
+		}
+		return decide(user, result);
+	}
+	
+	// whether refund() can give back units admitted by decide() with the same time and cost
+	default boolean refundable() {
+		return false;
+	}
+	
+	default void refund(String user, long currentTime, int cost) {
+		throw new UnsupportedOperationException(algorithm() + " does not support refunds on this backend");
+	}
+	
+	// policy variants take parameters and key state from the resolved policy instead of the defaults
+	default boolean supportsPolicies() {
+		return false;
+	}
+	
+	default DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		throw new UnsupportedOperationException(algorithm() + " does not support policies on this backend");
+	}
+	
+	default DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		throw new UnsupportedOperationException(algorithm() + " does not support policies on this backend");
+	}
+	
+	default DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		if(cost != 1) {
+			throw new UnsupportedOperationException(algorithm() + " does not support weighted cost on this backend");
+		}
+		return decide(user, policy, result);
+	}
+	
+	default boolean isAllowed(String user) {
+		return decision(user).isAllowed();
+	}
+}
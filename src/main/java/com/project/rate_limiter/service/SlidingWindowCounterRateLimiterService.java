@@ -0,0 +1,183 @@
+package com.project.rate_limiter.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.policy.PolicyStores;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.entity.WindowCounter;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.LongCell;
+import com.project.rate_limiter.store.LongStateStore;
+import com.project.rate_limiter.store.PackedState;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Approximates a sliding window from two aligned fixed windows: the previous window's
+ * count is weighted by how much of it still overlaps the sliding window.
+ */
+@Service
+public class SlidingWindowCounterRateLimiterService implements RateLimiterService {
+	
+	@Value("${rate.request.limit.count}")
+	private int REQUEST_LIMIT;
+	
+	@Value("${rate.request.limit.timeperiod}")
+	private long TIME_WINDOW_MS;
+	
+	private final LongStateStore counters;
+	
+	// one store per policy, evaluated with that policy's parameters
+	private final PolicyStores<LongStateStore> policyStores;
+	
+	private final CoarseClock clock;
+	
+	public SlidingWindowCounterRateLimiterService(KeyStateStoreRegistry stores, CoarseClock clock) {
+		this.clock = clock;
+		this.counters = stores.createLong("sliding_window_counter", 
+				currentTime -> WindowCounter.pack(currentTime / TIME_WINDOW_MS, 0, 0),
+				(counter, currentTime) -> WindowCounter.fullAt(counter, currentTime, TIME_WINDOW_MS));
+		this.policyStores = new PolicyStores<>(entry -> stores.createLong("sliding_window_counter:" + entry.policy().name(), 
+				currentTime -> WindowCounter.pack(currentTime / entry.policy().windowMs(), 0, 0),
+				(counter, currentTime) -> WindowCounter.fullAt(counter, currentTime, entry.policy().windowMs())));
+	}
+	
+	@PostConstruct
+	void validate() {
+		PackedState.checkCount("rate.request.limit.count", REQUEST_LIMIT);
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.SLIDING_WINDOW_COUNTER;
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decision(user, clock.millis());
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user, long currentTime) {
+		return decide(user, currentTime, new DecisionResult()).toDecision();
+	}
+	
+	@Override
+	public DecisionResult decide(String user, DecisionResult result) {
+		return decide(user, clock.millis(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return decide(user, currentTime, 1, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return decide(counters.cell(user, currentTime), currentTime, cost, REQUEST_LIMIT, TIME_WINDOW_MS, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, clock.millis(), cost, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), 1, policy, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		PolicyStores.Entry<LongStateStore> entry = policyStores.get(policy);
+		return decide(entry.store().cell(user, currentTime), currentTime, cost, policy.limit(), policy.windowMs(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), cost, policy, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	private DecisionResult decide(LongCell counter, long currentTime, int cost, int limit, long windowMs, DecisionResult result) {
+		long windowIndex = currentTime / windowMs;
+		long elapsed = currentTime - windowIndex * windowMs;
+		long overlap = windowMs - elapsed;
+		
+		while(true) {
+			long state = counter.get();
+			long rolled = WindowCounter.roll(state, windowIndex);
+			int previous = WindowCounter.previous(rolled);
+			int current = WindowCounter.current(rolled);
+			
+			// weighted count scaled by windowMs to stay in integer arithmetic
+			long used = previous * overlap + (long) current * windowMs;
+			long weighted = used + (long) cost * windowMs;
+			
+			if(weighted <= limit * windowMs) {
+				if(!counter.compareAndSet(state, WindowCounter.pack(windowIndex, previous, current + cost))) {
+					continue;
+				}
+				
+				int remaining = (int) ((limit * windowMs - weighted) / windowMs);
+				long resetInMs = overlap + windowMs;
+				return result.set(true, remaining, 0L, resetInMs);
+			}
+			
+			// blocked: the rolled window is only persisted by the next admitted request
+			int remaining = (int) Math.max(0, (limit * windowMs - used) / windowMs);
+			long retryAfterMs = retryAfterMs(previous, current, elapsed, cost, limit, windowMs);
+			long resetInMs = (current > 0 ? overlap + windowMs : overlap);
+			return result.set(false, remaining, retryAfterMs, resetInMs);
+		}
+	}
+	
+	@Override
+	public boolean refundable() {
+		return true;
+	}
+	
+	@Override
+	public void refund(String user, long currentTime, int cost) {
+		LongCell counter = counters.cell(user, currentTime);
+		long windowIndex = currentTime / TIME_WINDOW_MS;
+		
+		while(true) {
+			long state = counter.get();
+			// once the window has rolled the admitted units only weigh in as the previous count
+			if(WindowCounter.roll(state, windowIndex) != state) {
+				return;
+			}
+			// the current counter is the low field, so subtracting leaves the rest untouched
+			long refunded = state - Math.min(cost, WindowCounter.current(state));
+			if(counter.compareAndSet(state, refunded)) {
+				return;
+			}
+		}
+	}
+	
+	// time until previous * (windowMs - elapsed) / windowMs + current + cost fits the limit
+	public static long retryAfterMs(int previous, int current, long elapsed, int cost, int limit, long windowMs) {
+		if((long) current + cost <= limit && previous > 0) {
+			long needed = (long) (limit - current - cost) * windowMs / previous;
+			return Math.max(1, windowMs - needed - elapsed);
+		}
+		
+		// current window is exhausted; it becomes the previous one at the next boundary
+		long untilNextWindow = windowMs - elapsed;
+		if(current == 0) {
+			return untilNextWindow;
+		}
+		long needed = Math.max(0, (long) (limit - cost) * windowMs / current);
+		return untilNextWindow + Math.max(0, windowMs - needed);
+	}
+}
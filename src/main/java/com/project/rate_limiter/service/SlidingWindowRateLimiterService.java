@@ -1,18 +1,22 @@
 package com.project.rate_limiter.service;
 
-import java.time.Instant;
-import java.util.ArrayDeque;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
 import com.project.rate_limiter.entity.RateLimiterDecision;
-import com.project.rate_limiter.entity.UserRequestInfo;
+import com.project.rate_limiter.entity.SlidingLog;
+import com.project.rate_limiter.policy.PolicyStores;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.store.KeyStateStore;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
 
 @Service
-public class SlidingWindowRateLimiterService {
+@ConditionalOnProperty(name = "rate.store.backend", havingValue = "memory", matchIfMissing = true)
+public class SlidingWindowRateLimiterService implements RateLimiterService {
 	
 	@Value("${rate.request.limit.count}")
 	private int REQUEST_LIMIT;
@@ -20,48 +24,131 @@ public class SlidingWindowRateLimiterService {
 	@Value("${rate.request.limit.timeperiod}")
 	private long TIME_WINDOW_MS;
 	
-	Map<String, UserRequestInfo> userRequestMap = new HashMap<>();
+	// the timestamp log cannot be packed into one word, so each entry is guarded by its own monitor
+	private final KeyStateStore<SlidingLog> userRequestMap;
+	
+	// one store per policy, evaluated with that policy's parameters
+	private final PolicyStores<KeyStateStore<SlidingLog>> policyStores;
+	
+	private final CoarseClock clock;
+	
+	public SlidingWindowRateLimiterService(KeyStateStoreRegistry stores, CoarseClock clock) {
+		this.clock = clock;
+		this.userRequestMap = stores.create("sliding_window", 
+				currentTime -> new SlidingLog(REQUEST_LIMIT), 
+				(requestLog, currentTime) -> fullAt(requestLog, TIME_WINDOW_MS));
+		this.policyStores = new PolicyStores<>(entry -> stores.create("sliding_window:" + entry.policy().name(), 
+				currentTime -> new SlidingLog(entry.policy().limit()), 
+				(requestLog, currentTime) -> fullAt(requestLog, entry.policy().windowMs())));
+	}
 	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.SLIDING_WINDOW;
+	}
+	
+	@Override
 	public RateLimiterDecision decision(String user) {
-		long now = Instant.now().toEpochMilli();
-		return decision(user, now);
+		return decision(user, clock.millis());
 	}
 	
+	@Override
 	public RateLimiterDecision decision(String user, long currentTime) {
-		UserRequestInfo userInfo = userRequestMap.getOrDefault(user, 
-				new UserRequestInfo(currentTime, 0, new ArrayDeque<>()));
+		return decide(user, currentTime, new DecisionResult()).toDecision();
+	}
+	
+	@Override
+	public DecisionResult decide(String user, DecisionResult result) {
+		return decide(user, clock.millis(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return decide(user, currentTime, 1, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		SlidingLog requestLog = userRequestMap.get(user, currentTime);
 		
-		int originalQueueSize = userInfo.getRequestList().size();
+		synchronized(requestLog) {
+			return decide(requestLog, currentTime, cost, REQUEST_LIMIT, TIME_WINDOW_MS, result);
+		}
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, clock.millis(), cost, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), 1, policy, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		SlidingLog requestLog = policyStores.get(policy).store().get(user, currentTime);
 		
-		userInfo.getRequestList().removeIf(val -> currentTime - val > TIME_WINDOW_MS);
+		synchronized(requestLog) {
+			return decide(requestLog, currentTime, cost, policy.limit(), policy.windowMs(), result);
+		}
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), cost, policy, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	@Override
+	public boolean refundable() {
+		return true;
+	}
+	
+	@Override
+	public void refund(String user, long currentTime, int cost) {
+		SlidingLog requestLog = userRequestMap.get(user, currentTime);
 		
-		int requestsDataPurged = originalQueueSize - userInfo.getRequestList().size();
-		userInfo.setNumberOfRequestsMade(userInfo.getNumberOfRequestsMade() - requestsDataPurged);
+		synchronized(requestLog) {
+			requestLog.remove(currentTime, cost);
+		}
+	}
+	
+	private DecisionResult decide(SlidingLog requestLog, long currentTime, int cost, int limit, long windowMs, DecisionResult result) {
+		requestLog.expireBefore(currentTime - windowMs);
 		
-		if(userInfo.getRequestList().size() >= REQUEST_LIMIT) {
-			long oldest = userInfo.getRequestList().peekFirst();
-			
-			long retryAfterMs = Math.max(0, TIME_WINDOW_MS -(currentTime - oldest));
-			return new RateLimiterDecision(false, 0, retryAfterMs, retryAfterMs);
+		// in long, a huge cost must not wrap around and be logged cost times
+		long excess = (long) requestLog.size() + cost - limit;
+		if(excess > 0) {
+			// room for cost more requests once the excess oldest ones have left the window
+			long retryAfterMs = windowMs;
+			if(excess <= requestLog.size()) {
+				long oldest = requestLog.at((int) excess - 1);
+				retryAfterMs = Math.max(0, windowMs -(currentTime - oldest));
+			}
+			return result.set(false, limit - requestLog.size(), retryAfterMs, retryAfterMs);
 		}
 		
 		//allow
-		userInfo.getRequestList().addLast(currentTime);
-		userInfo.setNumberOfRequestsMade(userInfo.getNumberOfRequestsMade()+1);
-		userRequestMap.put(user, userInfo);
-		
-		int remaining = Math.max(0, REQUEST_LIMIT - userInfo.getRequestList().size());
-		long resetInMs = 0;
-		if(!userInfo.getRequestList().isEmpty()) {
-			long oldest = userInfo.getRequestList().peekLast();
-			resetInMs = Math.max(0, TIME_WINDOW_MS - (currentTime - oldest));
+		for(int i=0; i<cost; i++) {
+			requestLog.add(currentTime, limit);
 		}
 		
+		int remaining = Math.max(0, limit - requestLog.size());
+		long newest = requestLog.newest();
+		long resetInMs = Math.max(0, windowMs - (currentTime - newest));
 
-		return new RateLimiterDecision(true, remaining, resetInMs, resetInMs);
+		return result.set(true, remaining, resetInMs, resetInMs);
 	}
 	
-	public boolean isAllowed(String user) {
-		return decision(user).isAllowed();
+	private static long fullAt(SlidingLog requestLog, long windowMs) {
+		synchronized(requestLog) {
+			return requestLog.size() == 0 ? 0 : requestLog.newest() + windowMs + 1;
+		}
 	}
-}
\ No newline at end of file
+}
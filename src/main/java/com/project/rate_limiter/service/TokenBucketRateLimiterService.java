@@ -1,53 +1,153 @@
 package com.project.rate_limiter.service;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
 import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.policy.PolicyStores;
+import com.project.rate_limiter.policy.RateLimitPolicy;
 import com.project.rate_limiter.entity.TokenBucket;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.LongCell;
+import com.project.rate_limiter.store.LongStateStore;
+import com.project.rate_limiter.store.PackedState;
+
+import jakarta.annotation.PostConstruct;
 
 @Service
-public class TokenBucketRateLimiterService {
+@ConditionalOnProperty(name = "rate.store.backend", havingValue = "memory", matchIfMissing = true)
+public class TokenBucketRateLimiterService implements RateLimiterService {
+
+	@Value("${rate.request.limit.count}")
+	private int CAPACITY;
+
+	@Value("${rate.request.limit.refill.rate}")
+	private int REFILL_RATE_PER_SECOND;
 
-    @Value("${rate.request.limit.count}")
-    private int CAPACITY;
+	private final LongStateStore buckets;
+	
+	// one store per policy, evaluated with that policy's parameters
+	private final PolicyStores<LongStateStore> policyStores;
 
-    @Value("${rate.request.limit.refill.rate}")
-    private int REFILL_RATE_PER_SECOND;
+	private final CoarseClock clock;
+	
+	public TokenBucketRateLimiterService(KeyStateStoreRegistry stores, CoarseClock clock) {
+		this.clock = clock;
+		this.buckets = stores.createLong("token_bucket", 
+				currentTime -> TokenBucket.full(CAPACITY, currentTime),
+				(bucket, currentTime) -> TokenBucket.fullAt(bucket, CAPACITY, REFILL_RATE_PER_SECOND));
+		this.policyStores = new PolicyStores<>(entry -> stores.createLong("token_bucket:" + entry.policy().name(), 
+				currentTime -> TokenBucket.full(entry.policy().limit(), currentTime),
+				(bucket, currentTime) -> TokenBucket.fullAt(bucket, entry.policy().limit(), entry.policy().refillRatePerSecond())));
+	}
 
-    private final Map<String, TokenBucket> buckets = new HashMap<>();
+	@PostConstruct
+	void validate() {
+		PackedState.checkCount("rate.request.limit.count", CAPACITY);
+	}
 
-    public RateLimiterDecision decision(String user) {
-		long now = Instant.now().toEpochMilli();
-		return decision(user, now);
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.TOKEN_BUCKET;
 	}
 	
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decision(user, clock.millis());
+	}
+	
+	@Override
 	public RateLimiterDecision decision(String user, long currentTime) {
-		TokenBucket bucket = buckets.getOrDefault(user, new TokenBucket(CAPACITY, REFILL_RATE_PER_SECOND, currentTime));
-        bucket.refill(currentTime);
-        
-        if (bucket.getTokens() > 0) {
-            bucket.setTokens(bucket.getTokens()-1);
-            buckets.put(user, bucket);
-
-            int remaining = Math.max(0, bucket.getTokens());
-            long msPerToken = (1000L / REFILL_RATE_PER_SECOND);
-            long missing = Math.max(0, CAPACITY - bucket.getTokens());
-            long resetInMs =  msPerToken * missing;
-            
-            return new RateLimiterDecision(true, remaining, 0, resetInMs);
-            
-        }
-        
-        long retryAfterMs = (1000L / REFILL_RATE_PER_SECOND);
-		return new RateLimiterDecision(false, 0, retryAfterMs, retryAfterMs);
-	}
-	
-	public boolean isAllowed(String user) {
-		return decision(user).isAllowed();
+		return decide(user, currentTime, new DecisionResult()).toDecision();
+	}
+	
+	@Override
+	public DecisionResult decide(String user, DecisionResult result) {
+		return decide(user, clock.millis(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, DecisionResult result) {
+		return decide(user, currentTime, 1, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return decide(buckets.cell(user, currentTime), currentTime, cost, CAPACITY, REFILL_RATE_PER_SECOND, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, clock.millis(), cost, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), 1, policy, result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		PolicyStores.Entry<LongStateStore> entry = policyStores.get(policy);
+		return decide(entry.store().cell(user, currentTime), currentTime, cost, policy.limit(), policy.refillRatePerSecond(), result);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, clock.millis(), cost, policy, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	private DecisionResult decide(LongCell bucket, long currentTime, int cost, int capacity, int refillRate, DecisionResult result) {
+		long msPerToken = (1000L / refillRate);
+		
+		while(true) {
+			long state = bucket.get();
+			long refilled = TokenBucket.refill(state, capacity, refillRate, currentTime);
+			int tokens = TokenBucket.tokens(refilled);
+			
+			if(tokens >= cost) {
+				long taken = TokenBucket.take(refilled, cost);
+				if(!bucket.compareAndSet(state, taken)) {
+					continue;
+				}
+				
+				int remaining = Math.max(0, TokenBucket.tokens(taken));
+				long missing = Math.max(0, capacity - TokenBucket.tokens(taken));
+				long resetInMs = msPerToken * missing;
+				
+				return result.set(true, remaining, 0, resetInMs);
+			}
+			
+			// not enough tokens: the refill is recomputed from the stored timestamp next time,
+			// so there is no state to write back
+			long retryAfterMs = msPerToken * (cost - tokens);
+			return result.set(false, tokens, retryAfterMs, retryAfterMs);
+		}
+	}
+	
+	@Override
+	public boolean refundable() {
+		return true;
+	}
+	
+	@Override
+	public void refund(String user, long currentTime, int cost) {
+		LongCell bucket = buckets.cell(user, currentTime);
+		
+		while(true) {
+			long state = bucket.get();
+			if(bucket.compareAndSet(state, TokenBucket.give(state, cost, CAPACITY))) {
+				return;
+			}
+		}
 	}
 }
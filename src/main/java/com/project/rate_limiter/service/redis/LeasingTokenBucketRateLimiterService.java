@@ -0,0 +1,174 @@
+package com.project.rate_limiter.service.redis;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.store.KeyStateStore;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+
+/**
+ * Token bucket in front of the shared Redis bucket: each node leases a batch of tokens
+ * per key in one round trip and serves the following decisions from memory. The batch
+ * size follows the key's observed request rate, so cold keys still take one token at a time.
+ * <p>
+ * Leased tokens are already gone from the shared bucket; the only over-admission comes
+ * from tokens spent after the bucket refilled, bounded by replicas x rate.redis.lease.max.size
+ * per key. Leases expire after rate.redis.lease.ttl.ms and their unused tokens are returned.
+ */
+@Service
+@ConditionalOnExpression("'${rate.store.backend:memory}' == 'redis' and ${rate.redis.lease.enabled:false}")
+public class LeasingTokenBucketRateLimiterService implements RateLimiterService {
+	
+	@Value("${rate.request.limit.count}")
+	private int CAPACITY;
+	
+	@Value("${rate.request.limit.refill.rate}")
+	private int REFILL_RATE_PER_SECOND;
+	
+	@Value("${rate.redis.key.prefix:rate_limiter}")
+	private String keyPrefix;
+	
+	@Value("${rate.redis.lease.max.size:50}")
+	private int MAX_LEASE_SIZE;
+	
+	@Value("${rate.redis.lease.ttl.ms:1000}")
+	private long LEASE_TTL_MS;
+	
+	private final RedisDecisionScript leaseScript;
+	private final RedisDecisionScript returnScript;
+	private final KeyStateStore<Lease> leases;
+	
+	public LeasingTokenBucketRateLimiterService(RedisScriptExecutor executor, KeyStateStoreRegistry stores) {
+		this.leaseScript = new RedisDecisionScript(executor, "scripts/lease_tokens.lua");
+		this.returnScript = new RedisDecisionScript(executor, "scripts/return_tokens.lua");
+		// a lease can only be dropped once its tokens went back to the shared bucket
+		this.leases = stores.create("token_lease", 
+				currentTime -> new Lease(), 
+				(lease, currentTime) -> lease.tokens == 0 ? lease.expiresAt : Long.MAX_VALUE);
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.TOKEN_BUCKET;
+	}
+	
+	// leases expire on the local clock, the shared bucket refills on the Redis clock
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decide(user, System.currentTimeMillis(), 0L, 1);
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user, long currentTime) {
+		return decide(user, currentTime, currentTime, 1);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return result.set(decide(user, currentTime, currentTime, cost));
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return result.set(decide(user, System.currentTimeMillis(), 0L, cost));
+	}
+	
+	private RateLimiterDecision decide(String user, long localTime, long bucketTime, int cost) {
+		long msPerToken = 1000L / REFILL_RATE_PER_SECOND;
+		if(cost > CAPACITY) {
+			return new RateLimiterDecision(false, 0, msPerToken * cost, msPerToken * cost);
+		}
+		Lease lease = leases.get(user, localTime);
+		
+		// a lock rather than the monitor: the holder waits on Redis, which would pin a virtual thread
+		lease.lock.lock();
+		try {
+			lease.requests += cost;
+			
+			if(lease.tokens >= cost && localTime < lease.expiresAt) {
+				lease.tokens -= cost;
+				int remaining = Math.min(CAPACITY, lease.tokens + lease.sharedTokens);
+				return new RateLimiterDecision(true, remaining, 0L, msPerToken * (CAPACITY - remaining));
+			}
+			
+			// concurrent callers for this key wait here instead of all going to Redis
+			int returned = lease.tokens;
+			int wanted = Math.max(cost, lease.nextSize(localTime, Math.min(MAX_LEASE_SIZE, CAPACITY), LEASE_TTL_MS));
+			List<?> result = leaseScript.executeRaw(key(user), 
+					CAPACITY, REFILL_RATE_PER_SECOND, bucketTime, wanted, returned);
+			
+			int granted = ((Number) result.get(0)).intValue();
+			lease.sharedTokens = ((Number) result.get(1)).intValue();
+			lease.expiresAt = localTime + LEASE_TTL_MS;
+			
+			if(granted < cost) {
+				// the bucket is empty now; a partial grant stays leased for later requests
+				lease.tokens = granted;
+				long retryAfterMs = msPerToken * (cost - granted);
+				return new RateLimiterDecision(false, granted, retryAfterMs, retryAfterMs);
+			}
+			lease.tokens = granted - cost;
+			int remaining = Math.min(CAPACITY, lease.tokens + lease.sharedTokens);
+			return new RateLimiterDecision(true, remaining, 0L, ((Number) result.get(3)).longValue());
+		} finally {
+			lease.lock.unlock();
+		}
+	}
+	
+	@Scheduled(fixedDelayString = "${rate.redis.lease.ttl.ms:1000}")
+	public void returnExpiredLeases() {
+		long now = System.currentTimeMillis();
+		leases.forEach((user, lease) -> {
+			int unused;
+			lease.lock.lock();
+			try {
+				if(lease.tokens == 0 || now < lease.expiresAt) {
+					return;
+				}
+				unused = lease.tokens;
+				lease.tokens = 0;
+			} finally {
+				lease.lock.unlock();
+			}
+			returnScript.executeRaw(key(user), CAPACITY, unused);
+		});
+	}
+	
+	private String key(String user) {
+		return RedisDecisionScript.key(keyPrefix, "token", user);
+	}
+	
+	static final class Lease {
+		
+		final ReentrantLock lock = new ReentrantLock();
+		// written under the lock, read without it by the store sweeper
+		volatile int tokens;
+		volatile long expiresAt;
+		int sharedTokens;
+		int requests;
+		long leasedAt;
+		double requestsPerSecond;
+		
+		// enough tokens to cover the expected requests of one lease period
+		int nextSize(long currentTime, int maxSize, long ttlMs) {
+			int size = 1;
+			if(leasedAt > 0) {
+				double observed = requests * 1000.0 / Math.max(1, currentTime - leasedAt);
+				requestsPerSecond = 0.5 * requestsPerSecond + 0.5 * observed;
+				size = (int) Math.ceil(requestsPerSecond * ttlMs / 1000.0);
+			}
+			requests = 0;
+			leasedAt = currentTime;
+			return Math.max(1, Math.min(maxSize, size));
+		}
+	}
+}
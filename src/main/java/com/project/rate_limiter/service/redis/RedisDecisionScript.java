@@ -0,0 +1,60 @@
+package com.project.rate_limiter.service.redis;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import com.project.rate_limiter.entity.RateLimiterDecision;
+
+/**
+ * Lua decision script returning {allowed, remaining, retryAfterMs, timeToFullMs}.
+ * Runs through EVALSHA and only falls back to EVAL when Redis does not know the script yet,
+ * see {@link RedisScriptExecutor} for how calls are sent.
+ */
+public class RedisDecisionScript {
+	
+	private final RedisScriptExecutor executor;
+	private final DefaultRedisScript<List> script;
+	
+	public RedisDecisionScript(RedisScriptExecutor executor, String location) {
+		this.executor = executor;
+		this.script = new DefaultRedisScript<>();
+		this.script.setLocation(new ClassPathResource(location));
+		this.script.setResultType(List.class);
+	}
+	
+	public RateLimiterDecision execute(String key, Object... args) {
+		return toDecision(executeRaw(key, args));
+	}
+	
+	public CompletableFuture<RateLimiterDecision> executeAsync(String key, Object... args) {
+		return executor.executeAsync(script, key, arguments(args)).thenApply(RedisDecisionScript::toDecision);
+	}
+	
+	public List<?> executeRaw(String key, Object... args) {
+		return executor.execute(script, key, arguments(args));
+	}
+	
+	private static String[] arguments(Object... args) {
+		String[] arguments = new String[args.length];
+		for(int i=0; i<args.length; i++) {
+			arguments[i] = String.valueOf(args[i]);
+		}
+		return arguments;
+	}
+	
+	public static RateLimiterDecision toDecision(List<?> result) {
+		return new RateLimiterDecision(
+				((Number) result.get(0)).longValue() == 1L, 
+				((Number) result.get(1)).intValue(), 
+				((Number) result.get(2)).longValue(), 
+				((Number) result.get(3)).longValue());
+	}
+	
+	public static String key(String prefix, String algorithm, String user) {
+		// the hash tag keeps every key of a user in one slot on Redis Cluster
+		return prefix + ":" + algorithm + ":{" + user + "}";
+	}
+}
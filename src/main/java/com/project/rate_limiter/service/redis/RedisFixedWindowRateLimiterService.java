@@ -0,0 +1,88 @@
+package com.project.rate_limiter.service.redis;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.RateLimiterService;
+
+@Service
+@ConditionalOnProperty(name = "rate.store.backend", havingValue = "redis")
+public class RedisFixedWindowRateLimiterService implements RateLimiterService {
+	
+	@Value("${rate.request.limit.count}")
+	private int REQUEST_LIMIT;
+	
+	@Value("${rate.request.limit.timeperiod}")
+	private long TIME_WINDOW_MS;
+	
+	@Value("${rate.redis.key.prefix:rate_limiter}")
+	private String keyPrefix;
+	
+	private final RedisDecisionScript script;
+	
+	public RedisFixedWindowRateLimiterService(RedisScriptExecutor executor) {
+		this.script = new RedisDecisionScript(executor, "scripts/fixed_window.lua");
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.FIXED_WINDOW;
+	}
+	
+	// 0 lets the script use the Redis clock, which all replicas share
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decision(user, 0L);
+	}
+	
+	@Override
+	public CompletableFuture<RateLimiterDecision> decisionAsync(String user) {
+		return script.executeAsync(RedisDecisionScript.key(keyPrefix, "fixed", user), REQUEST_LIMIT, TIME_WINDOW_MS, 0L);
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user, long currentTime) {
+		return script.execute(RedisDecisionScript.key(keyPrefix, "fixed", user), 
+				REQUEST_LIMIT, TIME_WINDOW_MS, currentTime);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return result.set(script.execute(RedisDecisionScript.key(keyPrefix, "fixed", user), 
+				REQUEST_LIMIT, TIME_WINDOW_MS, currentTime, cost));
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, 0L, cost, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, 0L, 1, policy, result);
+	}
+	
+	// policies get their own keys, so each one keeps separate state
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return result.set(script.execute(RedisDecisionScript.key(keyPrefix, "fixed:" + policy.name(), user), 
+				policy.limit(), policy.windowMs(), currentTime, cost));
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, 0L, cost, policy, result);
+	}
+}
@@ -0,0 +1,196 @@
+package com.project.rate_limiter.service.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs decision scripts against Redis, either one round trip per call or micro-batched:
+ * concurrent callers are queued, and dispatcher threads send everything that arrived within
+ * rate.redis.batch.max.wait.micros (or up to rate.redis.batch.max.size calls) as one pipeline
+ * of EVALSHA commands, then complete each caller with its own result.
+ * <p>
+ * Without batching, async calls run on the application task executor, which uses virtual
+ * threads when spring.threads.virtual.enabled is set on Java 21.
+ */
+@Component
+@ConditionalOnProperty(name = "rate.store.backend", havingValue = "redis")
+public class RedisScriptExecutor implements DisposableBean {
+	
+	private final StringRedisTemplate redis;
+	private final Executor asyncExecutor;
+	private final boolean batching;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+	private final BlockingQueue<PendingCall> queue = new LinkedBlockingQueue<>();
+	private final List<Thread> dispatchers = new ArrayList<>();
+	private volatile boolean running = true;
+	
+	public RedisScriptExecutor(StringRedisTemplate redis,
+			@Value("${rate.redis.batch.enabled:false}") boolean batching,
+			@Value("${rate.redis.batch.max.size:64}") int maxBatchSize,
+			@Value("${rate.redis.batch.max.wait.micros:200}") long maxWaitMicros,
+			@Value("${rate.redis.batch.dispatchers:2}") int dispatcherCount,
+			@Qualifier("applicationTaskExecutor") Executor asyncExecutor) {
+		this.redis = redis;
+		this.asyncExecutor = asyncExecutor;
+		this.batching = batching;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+		
+		if(batching) {
+			for(int i=0; i<Math.max(1, dispatcherCount); i++) {
+				Thread dispatcher = new Thread(this::dispatch, "redis-decision-batcher-" + i);
+				dispatcher.setDaemon(true);
+				dispatcher.start();
+				dispatchers.add(dispatcher);
+			}
+		}
+	}
+	
+	public List<?> execute(DefaultRedisScript<List> script, String key, String[] args) {
+		if(!batching) {
+			return redis.execute(script, List.of(key), (Object[]) args);
+		}
+		try {
+			return executeAsync(script, key, args).join();
+		} catch(CompletionException ex) {
+			throw (ex.getCause() instanceof RuntimeException cause) ? cause : ex;
+		}
+	}
+	
+	public CompletableFuture<List<?>> executeAsync(DefaultRedisScript<List> script, String key, String[] args) {
+		if(!batching) {
+			return CompletableFuture.supplyAsync(() -> redis.execute(script, List.of(key), (Object[]) args), asyncExecutor);
+		}
+		PendingCall call = new PendingCall(script, key, args);
+		queue.add(call);
+		return call.result;
+	}
+	
+	@Override
+	public void destroy() {
+		running = false;
+		dispatchers.forEach(Thread::interrupt);
+	}
+	
+	private void dispatch() {
+		List<PendingCall> batch = new ArrayList<>(maxBatchSize);
+		while(running) {
+			try {
+				PendingCall first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				
+				// collect whatever arrives within the wait window, up to the batch size
+				long deadline = System.nanoTime() + maxWaitNanos;
+				while(batch.size() < maxBatchSize) {
+					PendingCall next = queue.poll();
+					if(next == null) {
+						long remaining = deadline - System.nanoTime();
+						if(remaining <= 0) {
+							break;
+						}
+						next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+						if(next == null) {
+							break;
+						}
+					}
+					batch.add(next);
+				}
+				
+				flush(batch);
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch(RuntimeException ex) {
+				batch.forEach(call -> call.result.completeExceptionally(ex));
+			} finally {
+				batch.clear();
+			}
+		}
+		
+		PendingCall left;
+		while((left = queue.poll()) != null) {
+			left.result.completeExceptionally(new IllegalStateException("Redis decision batcher stopped"));
+		}
+	}
+	
+	private void flush(List<PendingCall> batch) {
+		List<Object> results;
+		RedisPipelineException failure = null;
+		try {
+			results = redis.executePipelined((RedisCallback<Object>) connection -> {
+				for(PendingCall call: batch) {
+					connection.scriptingCommands().evalSha(call.script.getSha1(), ReturnType.MULTI, 1, call.keysAndArgs);
+				}
+				return null;
+			});
+		} catch(RedisPipelineException ex) {
+			results = ex.getPipelineResult();
+			failure = ex;
+		}
+		
+		if(results == null || results.size() != batch.size()) {
+			// the pipeline broke as a whole: Redis may have run some of the calls already,
+			// so none is retried, which could charge it twice
+			IllegalStateException error = new IllegalStateException("Redis pipeline answered " 
+					+ (results == null ? 0 : results.size()) + " of " + batch.size() + " decisions", failure);
+			batch.forEach(call -> call.result.completeExceptionally(error));
+			return;
+		}
+		
+		for(int i=0; i<batch.size(); i++) {
+			PendingCall call = batch.get(i);
+			Object result = results.get(i);
+			
+			if(!(result instanceof Throwable error)) {
+				call.result.complete((List<?>) result);
+			} else if(String.valueOf(error.getMessage()).contains("NOSCRIPT")) {
+				// Redis does not know the script yet, the regular path loads it with EVAL
+				call.result.complete(redis.execute(call.script, List.of(call.key), (Object[]) call.args));
+			} else {
+				call.result.completeExceptionally(error);
+			}
+		}
+	}
+	
+	private static final class PendingCall {
+		
+		final DefaultRedisScript<List> script;
+		final String key;
+		final String[] args;
+		final byte[][] keysAndArgs;
+		final CompletableFuture<List<?>> result = new CompletableFuture<>();
+		
+		PendingCall(DefaultRedisScript<List> script, String key, String[] args) {
+			this.script = script;
+			this.key = key;
+			this.args = args;
+			this.keysAndArgs = new byte[args.length + 1][];
+			this.keysAndArgs[0] = key.getBytes(StandardCharsets.UTF_8);
+			for(int i=0; i<args.length; i++) {
+				this.keysAndArgs[i + 1] = args[i].getBytes(StandardCharsets.UTF_8);
+			}
+		}
+	}
+}
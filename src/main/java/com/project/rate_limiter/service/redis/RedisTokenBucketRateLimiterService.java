@@ -0,0 +1,88 @@
+package com.project.rate_limiter.service.redis;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.RateLimiterService;
+
+@Service
+@ConditionalOnExpression("'${rate.store.backend:memory}' == 'redis' and !${rate.redis.lease.enabled:false}")
+public class RedisTokenBucketRateLimiterService implements RateLimiterService {
+	
+	@Value("${rate.request.limit.count}")
+	private int CAPACITY;
+	
+	@Value("${rate.request.limit.refill.rate}")
+	private int REFILL_RATE_PER_SECOND;
+	
+	@Value("${rate.redis.key.prefix:rate_limiter}")
+	private String keyPrefix;
+	
+	private final RedisDecisionScript script;
+	
+	public RedisTokenBucketRateLimiterService(RedisScriptExecutor executor) {
+		this.script = new RedisDecisionScript(executor, "scripts/token_bucket.lua");
+	}
+	
+	@Override
+	public RateLimiterAlgorithm algorithm() {
+		return RateLimiterAlgorithm.TOKEN_BUCKET;
+	}
+	
+	// 0 lets the script use the Redis clock, which all replicas share
+	@Override
+	public RateLimiterDecision decision(String user) {
+		return decision(user, 0L);
+	}
+	
+	@Override
+	public CompletableFuture<RateLimiterDecision> decisionAsync(String user) {
+		return script.executeAsync(RedisDecisionScript.key(keyPrefix, "token", user), CAPACITY, REFILL_RATE_PER_SECOND, 0L);
+	}
+	
+	@Override
+	public RateLimiterDecision decision(String user, long currentTime) {
+		return script.execute(RedisDecisionScript.key(keyPrefix, "token", user), 
+				CAPACITY, REFILL_RATE_PER_SECOND, currentTime);
+	}
+	
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, DecisionResult result) {
+		return result.set(script.execute(RedisDecisionScript.key(keyPrefix, "token", user), 
+				CAPACITY, REFILL_RATE_PER_SECOND, currentTime, cost));
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, DecisionResult result) {
+		return decide(user, 0L, cost, result);
+	}
+	
+	@Override
+	public boolean supportsPolicies() {
+		return true;
+	}
+	
+	@Override
+	public DecisionResult decide(String user, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, 0L, 1, policy, result);
+	}
+	
+	// policies get their own keys, so each one keeps separate state
+	@Override
+	public DecisionResult decide(String user, long currentTime, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return result.set(script.execute(RedisDecisionScript.key(keyPrefix, "token:" + policy.name(), user), 
+				policy.limit(), policy.refillRatePerSecond(), currentTime, cost));
+	}
+	
+	@Override
+	public DecisionResult decide(String user, int cost, RateLimitPolicy policy, DecisionResult result) {
+		return decide(user, 0L, cost, policy, result);
+	}
+}
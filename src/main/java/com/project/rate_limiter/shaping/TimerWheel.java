@@ -0,0 +1,111 @@
+package com.project.rate_limiter.shaping;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel: a ring of buckets each covering one tick, advanced by a single thread.
+ * A task goes into the bucket its deadline falls in, together with the number of full turns
+ * still to wait, so scheduling costs O(1) and an idle task costs one check per turn. Tasks run
+ * on the wheel thread at the first tick at or after their deadline and must return quickly.
+ */
+final class TimerWheel implements AutoCloseable {
+	
+	private static final Logger log = LoggerFactory.getLogger(TimerWheel.class);
+	
+	private final long tickNanos;
+	private final int mask;
+	// only touched by the wheel thread
+	private final ArrayDeque<Timeout>[] buckets;
+	private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+	private final long startNanos = System.nanoTime();
+	private final Thread worker;
+	private volatile boolean running = true;
+	private long tick;
+	
+	private static final class Timeout {
+		
+		private final long deadline;
+		private final Runnable task;
+		private long rounds;
+		
+		private Timeout(long deadline, Runnable task) {
+			this.deadline = deadline;
+			this.task = task;
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	TimerWheel(long tickMs, int size, String name) {
+		if(tickMs < 1 || size < 1 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("Timer wheel needs a positive tick and a power of two size but got " + tickMs + " ms x " + size);
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+		this.mask = size - 1;
+		this.buckets = new ArrayDeque[size];
+		for(int i=0; i<size; i++) {
+			buckets[i] = new ArrayDeque<>();
+		}
+		this.worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+	
+	void schedule(long delayMs, Runnable task) {
+		incoming.add(new Timeout(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs)), task));
+	}
+	
+	private void run() {
+		while(running) {
+			long tickEnd = startNanos + (tick + 1) * tickNanos;
+			long wait;
+			while((wait = tickEnd - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+				if(!running) {
+					return;
+				}
+			}
+			transferIncoming();
+			expire(buckets[(int) (tick & mask)]);
+			tick++;
+		}
+	}
+	
+	private void transferIncoming() {
+		Timeout timeout;
+		while((timeout = incoming.poll()) != null) {
+			// the tick ending at or after the deadline, never one already passed
+			long due = Math.max(tick, (timeout.deadline - startNanos + tickNanos - 1) / tickNanos - 1);
+			timeout.rounds = (due - tick) / buckets.length;
+			buckets[(int) (due & mask)].add(timeout);
+		}
+	}
+	
+	private void expire(ArrayDeque<Timeout> bucket) {
+		for(int i=bucket.size(); i>0; i--) {
+			Timeout timeout = bucket.poll();
+			if(timeout.rounds > 0) {
+				timeout.rounds--;
+				bucket.add(timeout);
+				continue;
+			}
+			try {
+				timeout.task.run();
+			} catch(RuntimeException ex) {
+				log.warn("Timer task failed", ex);
+			}
+		}
+	}
+	
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(worker);
+	}
+}
@@ -0,0 +1,109 @@
+package com.project.rate_limiter.shaping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delays over-rate requests instead of rejecting them, up to rate.shaping.max.delay.ms in total
+ * and rate.shaping.max.queued requests at a time. Waiting requests hold no thread: they are
+ * parked in an async servlet context and released from a timer wheel. Each waiter reserves its
+ * own release slot when it is queued, one emission interval after the previous waiter of its
+ * key, so a key's queue drains in FIFO order at the limiter's rate, like a leaky bucket.
+ */
+@Component
+public class TrafficShaper implements DisposableBean {
+	
+	private final boolean enabled;
+	private final long maxDelayMs;
+	private final int maxQueued;
+	private final AtomicInteger queued = new AtomicInteger();
+	// the last reserved release slot per key, in System.nanoTime
+	private final Map<String, Long> tails = new ConcurrentHashMap<>();
+	private final TimerWheel wheel;
+	
+	public TrafficShaper(@Value("${rate.shaping.enabled:false}") boolean enabled,
+			@Value("${rate.shaping.max.delay.ms:1000}") long maxDelayMs,
+			@Value("${rate.shaping.max.queued:10000}") int maxQueued,
+			@Value("${rate.shaping.tick.ms:10}") long tickMs,
+			@Value("${rate.shaping.wheel.size:512}") int wheelSize) {
+		this.enabled = enabled;
+		this.maxDelayMs = maxDelayMs;
+		this.maxQueued = maxQueued;
+		this.wheel = enabled ? new TimerWheel(tickMs, wheelSize, "traffic-shaper") : null;
+	}
+	
+	public boolean enabled() {
+		return enabled;
+	}
+	
+	public long maxDelayMs() {
+		return maxDelayMs;
+	}
+	
+	// takes a place in the queue for a request about to wait, false when the queue is full
+	public boolean enter() {
+		if(!enabled) {
+			return false;
+		}
+		while(true) {
+			int current = queued.get();
+			if(current >= maxQueued) {
+				return false;
+			}
+			if(queued.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	public void leave() {
+		queued.decrementAndGet();
+	}
+	
+	public int queued() {
+		return queued.get();
+	}
+	
+	/**
+	 * Reserves the key's next release slot: no earlier than retryAfterMs from now and one
+	 * interval after the key's previous slot. Returns the slot in System.nanoTime, or -1
+	 * without reserving when it would fall after the deadline.
+	 */
+	public long reserve(String key, long retryAfterMs, long intervalNanos, long deadlineNanos) {
+		long earliest = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMs);
+		long[] slot = {-1};
+		tails.compute(key, (ignored, tail) -> {
+			long at = tail == null ? earliest : Math.max(earliest, tail + intervalNanos);
+			if(at > deadlineNanos) {
+				return tail;
+			}
+			slot[0] = at;
+			return at;
+		});
+		return slot[0];
+	}
+	
+	// gives up a slot once its request has been released; forgets the key after its last waiter
+	public void released(String key, long slot) {
+		tails.remove(key, slot);
+	}
+	
+	// runs the task on the wheel thread at the slot; it should hand any real work off
+	public void schedule(long slotNanos, Runnable task) {
+		long delayNanos = slotNanos - System.nanoTime();
+		wheel.schedule((delayNanos + 999_999) / 1_000_000, task);
+	}
+	
+	@Override
+	public void destroy() {
+		if(wheel != null) {
+			wheel.close();
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.project.rate_limiter.simulation;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.service.CompositeRateLimiterService;
+import com.project.rate_limiter.service.FixedSizeRateLimiterService;
+import com.project.rate_limiter.service.GcraRateLimiterService;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.service.SlidingWindowCounterRateLimiterService;
+import com.project.rate_limiter.service.SlidingWindowRateLimiterService;
+import com.project.rate_limiter.service.TokenBucketRateLimiterService;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+
+/**
+ * Private in-memory limiters for simulations and benchmarks, detached from the served ones.
+ * They are meant to be driven through the policy overloads, which carry the parameters.
+ */
+public final class Limiters {
+
+	private Limiters() {}
+
+	public static RateLimiterService create(RateLimiterAlgorithm algorithm, KeyStateStoreRegistry stores, CoarseClock clock) {
+		return switch(algorithm) {
+			case TOKEN_BUCKET -> new TokenBucketRateLimiterService(stores, clock);
+			case SLIDING_WINDOW -> new SlidingWindowRateLimiterService(stores, clock);
+			case FIXED_WINDOW -> new FixedSizeRateLimiterService(stores, clock);
+			case SLIDING_WINDOW_COUNTER -> new SlidingWindowCounterRateLimiterService(stores, clock);
+			case GCRA -> new GcraRateLimiterService(stores, clock);
+			// the default limits are unused, the policy carries the components
+			case COMPOSITE -> new CompositeRateLimiterService(stores, clock, "1/1000");
+		};
+	}
+}
@@ -0,0 +1,23 @@
+package com.project.rate_limiter.simulation;
+
+import java.util.List;
+
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+/**
+ * One simulated run: the limiter under test, the traffic sent to it and the markers placed in
+ * the timeline. Each arrival goes to user when keys is 1, otherwise to one of keys users picked
+ * at random. The seed makes Poisson traffic and key choice repeatable.
+ */
+public record Simulation(
+		RateLimitPolicy policy,
+		TrafficPattern traffic,
+		List<Marker> markers,
+		String user,
+		int keys,
+		long seed,
+		int timelineLimit
+) {
+
+	public record Marker(long atMs, String comment) {}
+}
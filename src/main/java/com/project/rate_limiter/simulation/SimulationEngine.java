@@ -0,0 +1,122 @@
+package com.project.rate_limiter.simulation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.controller.dto.DemoEvent;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.simulation.Simulation.Marker;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.PackedState;
+import com.project.rate_limiter.store.StoreMode;
+
+/**
+ * Runs simulations in process on a virtual clock: every run gets fresh limiter instances with
+ * their own stores, and each arrival is decided at its virtual time through the policy overload,
+ * so nothing sleeps and the served limiters keep their state.
+ */
+@Service
+public class SimulationEngine {
+
+	// a UTC midnight, so second, minute and day windows start at offset 0
+	static final long EPOCH = 1_699_920_000_000L;
+
+	// never read, every decision passes its virtual time
+	private static final CoarseClock CLOCK = new CoarseClock(0);
+
+	@Value("${rate.simulation.max.events:10000000}")
+	private long MAX_EVENTS;
+
+	@Value("${rate.simulation.max.keys:100000}")
+	private int MAX_KEYS;
+
+	public SimulationResult run(Simulation simulation) {
+		if(simulation.keys() < 1 || simulation.keys() > MAX_KEYS || simulation.timelineLimit() < 0) {
+			throw new IllegalArgumentException("Keys must be between 1 and " + MAX_KEYS 
+					+ " and the timeline limit must not be negative");
+		}
+		checkLimits(simulation.policy());
+
+		RateLimiterService service = Limiters.create(simulation.policy().algorithm(),
+				new KeyStateStoreRegistry(StoreMode.HEAP, simulation.keys(), 5, 10_000, 0, 0, ""), CLOCK);
+		String[] keys = keys(simulation.user(), simulation.keys());
+		SplittableRandom random = new SplittableRandom(simulation.seed());
+		TrafficPattern.Arrivals arrivals = simulation.traffic().arrivals(random.split());
+		Iterator<Marker> markers = simulation.markers().stream()
+				.sorted(Comparator.comparingLong(Marker::atMs))
+				.iterator();
+		Marker marker = markers.hasNext() ? markers.next() : null;
+
+		List<DemoEvent> timeline = new ArrayList<>();
+		DecisionResult result = new DecisionResult();
+		long events = 0;
+		long allowed = 0;
+		long last = 0;
+		boolean truncated = false;
+		long started = System.nanoTime();
+
+		for(long at = arrivals.next(); at != TrafficPattern.END; at = arrivals.next()) {
+			if(events == MAX_EVENTS) {
+				truncated = true;
+				break;
+			}
+			while(marker != null && marker.atMs() <= at) {
+				if(timeline.size() < simulation.timelineLimit()) {
+					timeline.add(new DemoEvent(0, 0, 0, marker.comment()));
+				}
+				marker = markers.hasNext() ? markers.next() : null;
+			}
+
+			String key = keys.length == 1 ? keys[0] : keys[random.nextInt(keys.length)];
+			service.decide(key, EPOCH + at, 1, simulation.policy(), result);
+
+			events++;
+			if(result.isAllowed()) {
+				allowed++;
+			}
+			last = at;
+			if(timeline.size() < simulation.timelineLimit()) {
+				timeline.add(new DemoEvent(result.isAllowed() ? 200 : 429, result.remaining(), result.retryAfterMs(), ""));
+			}
+		}
+
+		long wallTimeMs = (System.nanoTime() - started) / 1_000_000L;
+		double admittedPerSecond = last == 0 ? 0 : allowed * 1000.0 / last;
+		return new SimulationResult(simulation.policy().algorithm().name(), events, allowed, events - allowed,
+				last, admittedPerSecond, wallTimeMs, truncated, timeline);
+	}
+
+	// the packed states hold counts of 22 bits, larger limits would wrap around
+	private static void checkLimits(RateLimitPolicy policy) {
+		checkLimit(policy.limit());
+		if(policy.components() != null) {
+			policy.components().forEach(component -> checkLimit(component.limit()));
+		}
+	}
+
+	private static void checkLimit(int limit) {
+		if(limit < 1 || limit > PackedState.MAX_COUNT) {
+			throw new IllegalArgumentException("Limits must be between 1 and " + PackedState.MAX_COUNT + " but was " + limit);
+		}
+	}
+
+	private static String[] keys(String user, int count) {
+		if(count == 1) {
+			return new String[] { user };
+		}
+		String[] keys = new String[count];
+		for(int i=0; i<count; i++) {
+			keys[i] = user + "-" + i;
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,21 @@
+package com.project.rate_limiter.simulation;
+
+import java.util.List;
+
+import com.project.rate_limiter.controller.dto.DemoEvent;
+
+/**
+ * Totals of a simulated run. durationMs is the virtual time of the last arrival, wallTimeMs
+ * how long the run actually took. The timeline holds only the first events of the run.
+ */
+public record SimulationResult(
+		String algorithm,
+		long events,
+		long allowed,
+		long blocked,
+		long durationMs,
+		double admittedPerSecond,
+		long wallTimeMs,
+		boolean truncated,
+		List<DemoEvent> timeline
+) {}
@@ -0,0 +1,106 @@
+package com.project.rate_limiter.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Request arrival times in virtual milliseconds from the start of a simulation. Arrivals are
+ * produced lazily and in ascending order, so a run of millions of events never holds its
+ * schedule in memory.
+ */
+@FunctionalInterface
+public interface TrafficPattern {
+
+	long END = -1;
+
+	Arrivals arrivals(SplittableRandom random);
+
+	@FunctionalInterface
+	interface Arrivals {
+		// next arrival time, END once the pattern is exhausted
+		long next();
+	}
+
+	static TrafficPattern burst(int count, long atMs) {
+		return uniform(count, atMs, 0);
+	}
+
+	static TrafficPattern uniform(int count, long startMs, long intervalMs) {
+		if(count < 0 || startMs < 0 || intervalMs < 0) {
+			throw new IllegalArgumentException("Count, start and interval must not be negative");
+		}
+		return random -> new Arrivals() {
+			private int emitted;
+
+			@Override
+			public long next() {
+				return emitted == count ? END : startMs + intervalMs * emitted++;
+			}
+		};
+	}
+
+	// exponentially distributed gaps, the arrivals of independent clients at a mean rate
+	static TrafficPattern poisson(double ratePerSecond, long startMs, long durationMs) {
+		if(!(ratePerSecond > 0) || startMs < 0 || durationMs < 0) {
+			throw new IllegalArgumentException("Rate must be positive, start and duration must not be negative");
+		}
+		double meanGapMs = 1000.0 / ratePerSecond;
+		return random -> new Arrivals() {
+			private double elapsed = -Math.log(1.0 - random.nextDouble()) * meanGapMs;
+
+			@Override
+			public long next() {
+				if(elapsed >= durationMs) {
+					return END;
+				}
+				long arrival = startMs + (long) elapsed;
+				elapsed += -Math.log(1.0 - random.nextDouble()) * meanGapMs;
+				return arrival;
+			}
+		};
+	}
+
+	// replays recorded arrival times, in any order
+	static TrafficPattern trace(long[] timestamps) {
+		long[] sorted = timestamps.clone();
+		Arrays.sort(sorted);
+		if(sorted.length > 0 && sorted[0] < 0) {
+			throw new IllegalArgumentException("Trace timestamps must not be negative");
+		}
+		return random -> new Arrivals() {
+			private int index;
+
+			@Override
+			public long next() {
+				return index == sorted.length ? END : sorted[index++];
+			}
+		};
+	}
+
+	// interleaves the patterns by arrival time, earlier patterns first on ties
+	static TrafficPattern merge(List<TrafficPattern> patterns) {
+		return random -> {
+			Arrivals[] sources = new Arrivals[patterns.size()];
+			long[] heads = new long[sources.length];
+			for(int i=0; i<sources.length; i++) {
+				sources[i] = patterns.get(i).arrivals(random.split());
+				heads[i] = sources[i].next();
+			}
+			return () -> {
+				int earliest = -1;
+				for(int i=0; i<heads.length; i++) {
+					if(heads[i] != END && (earliest < 0 || heads[i] < heads[earliest])) {
+						earliest = i;
+					}
+				}
+				if(earliest < 0) {
+					return END;
+				}
+				long arrival = heads[earliest];
+				heads[earliest] = sources[earliest].next();
+				return arrival;
+			};
+		};
+	}
+}
@@ -0,0 +1,137 @@
+package com.project.rate_limiter.sketch;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-Min sketch of request counts over a sliding window, in fixed memory however many keys
+ * are seen. Counts go to the current window; the previous one is weighted by how much of it
+ * still overlaps the sliding window, as with the sliding window counter. Estimates never
+ * undercount, colliding keys only make them larger.
+ */
+public class CountMinSketch {
+	
+	private final int depth;
+	private final int mask;
+	private final long windowMs;
+	private final long[] seeds;
+	
+	private volatile Window current;
+	private volatile Window previous;
+	
+	private static final class Window {
+		
+		private final long start;
+		private final AtomicIntegerArray counts;
+		
+		private Window(long start, int size) {
+			this.start = start;
+			this.counts = new AtomicIntegerArray(size);
+		}
+	}
+	
+	public CountMinSketch(int width, int depth, long windowMs, long now) {
+		if(width < 1 || Integer.bitCount(width) != 1 || depth < 1 || windowMs < 1) {
+			throw new IllegalArgumentException("Sketch width must be a power of two, depth and window positive");
+		}
+		this.depth = depth;
+		this.mask = width - 1;
+		this.windowMs = windowMs;
+		// random per instance and hashed over the whole key, so colliding keys cannot be precomputed
+		SplittableRandom random = new SplittableRandom();
+		this.seeds = new long[depth];
+		for(int i=0; i<depth; i++) {
+			seeds[i] = random.nextLong() | 1L;
+		}
+		long start = now - Math.floorMod(now, windowMs);
+		this.current = new Window(start, width * depth);
+		this.previous = new Window(start - windowMs, width * depth);
+	}
+	
+	// counts one request for the key and returns its estimate including it
+	public long add(String key, long now) {
+		Window window = rotate(now);
+		Window before = previous;
+		double weight = weight(window, now);
+		
+		double estimate = Double.MAX_VALUE;
+		for(int row=0; row<depth; row++) {
+			int index = index(key, row);
+			estimate = Math.min(estimate, window.counts.incrementAndGet(index) + before.counts.get(index) * weight);
+		}
+		return (long) Math.ceil(estimate);
+	}
+	
+	public long estimate(String key, long now) {
+		Window window = rotate(now);
+		Window before = previous;
+		double weight = weight(window, now);
+		
+		double estimate = Double.MAX_VALUE;
+		for(int row=0; row<depth; row++) {
+			int index = index(key, row);
+			estimate = Math.min(estimate, window.counts.get(index) + before.counts.get(index) * weight);
+		}
+		return (long) Math.ceil(estimate);
+	}
+	
+	private double weight(Window window, long now) {
+		return Math.max(0, windowMs - (now - window.start)) / (double) windowMs;
+	}
+	
+	private int index(String key, int row) {
+		return row * (mask + 1) + (int) (hash(key, seeds[row]) & mask);
+	}
+	
+	// murmur3 x64 style over the chars, four to a block; unlike mixing String.hashCode, keys
+	// colliding in one row's hash need not collide in another's
+	static long hash(String key, long seed) {
+		long hash = seed ^ key.length();
+		int length = key.length();
+		int i = 0;
+		for(; i + 4 <= length; i += 4) {
+			long block = key.charAt(i) | (long) key.charAt(i + 1) << 16 
+					| (long) key.charAt(i + 2) << 32 | (long) key.charAt(i + 3) << 48;
+			hash ^= mixBlock(block);
+			hash = Long.rotateLeft(hash, 27) * 5 + 0x52DCE729L;
+		}
+		if(i < length) {
+			long block = 0;
+			for(int shift=0; i < length; i++, shift += 16) {
+				block |= (long) key.charAt(i) << shift;
+			}
+			hash ^= mixBlock(block);
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+	
+	private static long mixBlock(long block) {
+		block *= 0x87C37B91114253D5L;
+		block = Long.rotateLeft(block, 31);
+		return block * 0x4CF5AD432745937FL;
+	}
+	
+	// a new window replaces the current one once it is over; increments that race with the
+	// rotation land in either window, which only shifts them by one window
+	private Window rotate(long now) {
+		Window window = current;
+		if(now - window.start < windowMs) {
+			return window;
+		}
+		synchronized(this) {
+			window = current;
+			if(now - window.start < windowMs) {
+				return window;
+			}
+			long start = now - Math.floorMod(now, windowMs);
+			Window next = new Window(start, window.counts.length());
+			previous = start - window.start == windowMs ? window : new Window(start - windowMs, window.counts.length());
+			current = next;
+			return next;
+		}
+	}
+}
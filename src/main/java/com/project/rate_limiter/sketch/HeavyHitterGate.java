@@ -0,0 +1,70 @@
+package com.project.rate_limiter.sketch;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.monitoring.TopKeys;
+
+/**
+ * Approximate tier in front of the exact limiters. Every request is counted in a Count-Min
+ * sketch; a key estimated at no more than threshold requests per window is admitted without
+ * exact state, so sprayed one-off keys such as random source addresses cost no memory. Only
+ * keys above it reach the exact limiters, and a sample of them feeds a heavy hitter top-K.
+ * Requests admitted here are not charged to the exact limiter, so a promoted key may get up
+ * to threshold extra requests per window: keep the threshold well below the smallest limit.
+ */
+@Component
+public class HeavyHitterGate {
+	
+	private static final int HEAVY_SAMPLE_RATE = 16;
+	
+	private final boolean enabled;
+	private final long threshold;
+	private final CoarseClock clock;
+	private final CountMinSketch sketch;
+	private final TopKeys heavyKeys;
+	
+	public HeavyHitterGate(@Value("${rate.sketch.enabled:false}") boolean enabled,
+			@Value("${rate.sketch.threshold:2}") long threshold,
+			@Value("${rate.sketch.window.ms:60000}") long windowMs,
+			@Value("${rate.sketch.width:65536}") int width,
+			@Value("${rate.sketch.depth:4}") int depth,
+			@Value("${rate.sketch.top.keys:32}") int topKeys,
+			CoarseClock clock) {
+		this.enabled = enabled;
+		this.threshold = threshold;
+		this.clock = clock;
+		this.sketch = enabled ? new CountMinSketch(width, depth, windowMs, clock.millis()) : null;
+		this.heavyKeys = new TopKeys(topKeys);
+	}
+	
+	public boolean enabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Counts the request and, when the key is light, returns a lower bound of its remaining
+	 * requests; -1 when it is above the threshold and needs an exact decision.
+	 */
+	public long lightRemaining(String key) {
+		if(!enabled) {
+			return -1;
+		}
+		long estimate = sketch.add(key, clock.millis());
+		if(estimate <= threshold) {
+			return threshold - estimate;
+		}
+		if(ThreadLocalRandom.current().nextInt(HEAVY_SAMPLE_RATE) == 0) {
+			heavyKeys.offer(key, HEAVY_SAMPLE_RATE);
+		}
+		return -1;
+	}
+	
+	public List<TopKeys.KeyCount> heavyHitters(int limit) {
+		return heavyKeys.top(limit);
+	}
+}
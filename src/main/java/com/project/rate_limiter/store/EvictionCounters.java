@@ -0,0 +1,35 @@
+package com.project.rate_limiter.store;
+
+import java.util.concurrent.atomic.LongAdder;
+
+class EvictionCounters {
+	
+	private final LongAdder idleEvictions = new LongAdder();
+	private final LongAdder capacityEvictions = new LongAdder();
+	private long lastSweepTime;
+	private long lastSweepEvictions;
+	private volatile double evictionsPerSecond;
+	
+	void idleEvicted() {
+		idleEvictions.increment();
+	}
+	
+	void capacityEvicted() {
+		capacityEvictions.increment();
+	}
+	
+	// called by the single thread that holds the store's sweep lock
+	void sweepFinished(long currentTime) {
+		long evictions = idleEvictions.sum() + capacityEvictions.sum();
+		if(lastSweepTime > 0 && currentTime > lastSweepTime) {
+			evictionsPerSecond = (evictions - lastSweepEvictions) * 1000.0 / (currentTime - lastSweepTime);
+		}
+		lastSweepTime = currentTime;
+		lastSweepEvictions = evictions;
+	}
+	
+	StoreStats stats(String name, int size, int maxKeys) {
+		return new StoreStats(name, size, maxKeys, 
+				idleEvictions.sum(), capacityEvictions.sum(), evictionsPerSecond);
+	}
+}
@@ -0,0 +1,28 @@
+package com.project.rate_limiter.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+public class HeapLongStateStore extends KeyStateStore<HeapLongStateStore.Cell> implements LongStateStore {
+	
+	public HeapLongStateStore(String name, LongUnaryOperator initializer, LongBinaryOperator fullAt,
+			int maxKeys, int evictionSampleSize) {
+		super(name, currentTime -> new Cell(initializer.applyAsLong(currentTime)), 
+				(cell, currentTime) -> fullAt.applyAsLong(cell.get(), currentTime), 
+				maxKeys, evictionSampleSize);
+	}
+	
+	@Override
+	public LongCell cell(String key, long currentTime) {
+		return get(key, currentTime);
+	}
+	
+	@SuppressWarnings("serial")
+	static final class Cell extends AtomicLong implements LongCell {
+		
+		Cell(long initialValue) {
+			super(initialValue);
+		}
+	}
+}
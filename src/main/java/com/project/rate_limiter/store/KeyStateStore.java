@@ -0,0 +1,139 @@
+package com.project.rate_limiter.store;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Concurrent per-key state store shared by the limiter services.
+ * Lookups of existing keys never lock; a missing key is created exactly once, so
+ * concurrent first requests for the same key always share one state instance.
+ * Updating the state atomically (CAS on packed primitives or the state's own monitor)
+ * is left to the owning service.
+ * <p>
+ * Keys whose state is back to full are dropped by incremental {@link #sweep} calls, and
+ * inserting beyond {@code maxKeys} evicts the sampled entry that is closest to full.
+ * Both walk a shared cursor, so no call ever scans the whole map.
+ */
+public class KeyStateStore<S> implements StateStore {
+
+	private final String name;
+	private final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+	private final LongFunction<? extends S> initializer;
+	private final StateExpiry<? super S> expiry;
+	private final int maxKeys;
+	private final int evictionSampleSize;
+	private final EvictionCounters evictions = new EvictionCounters();
+	
+	// guards the cursor; the decision path only ever tries it
+	private final ReentrantLock cursorLock = new ReentrantLock();
+	private Iterator<Map.Entry<String, S>> cursor;
+
+	public KeyStateStore(String name, LongFunction<? extends S> initializer, StateExpiry<? super S> expiry,
+			int maxKeys, int evictionSampleSize) {
+		this.name = name;
+		this.initializer = initializer;
+		this.expiry = expiry;
+		this.maxKeys = maxKeys;
+		this.evictionSampleSize = Math.max(1, evictionSampleSize);
+	}
+
+	public S get(String key, long currentTime) {
+		S state = states.get(key);
+		if(state == null) {
+			state = states.computeIfAbsent(key, k -> initializer.apply(currentTime));
+			if(states.size() > maxKeys) {
+				evictOverflow(key, currentTime);
+			}
+		}
+		return state;
+	}
+
+	@Override
+	public void sweep(long currentTime, int budget) {
+		cursorLock.lock();
+		try {
+			for(int i=0; i<budget; i++) {
+				Map.Entry<String, S> entry = nextEntry();
+				if(entry == null) {
+					break;
+				}
+				if(expiry.fullAt(entry.getValue(), currentTime) <= currentTime 
+						&& states.remove(entry.getKey(), entry.getValue())) {
+					evictions.idleEvicted();
+				}
+			}
+			evictions.sweepFinished(currentTime);
+		} finally {
+			cursorLock.unlock();
+		}
+	}
+
+	// weakly consistent walk for background maintenance, never call it on the decision path
+	public void forEach(BiConsumer<? super String, ? super S> action) {
+		states.forEach(action);
+	}
+
+	@Override
+	public int size() {
+		return states.size();
+	}
+	
+	@Override
+	public StoreStats stats() {
+		return evictions.stats(name, states.size(), maxKeys);
+	}
+	
+	private void evictOverflow(String insertedKey, long currentTime) {
+		// another thread is already evicting or sweeping, the overshoot is bounded by concurrency
+		if(!cursorLock.tryLock()) {
+			return;
+		}
+		try {
+			while(states.size() > maxKeys) {
+				Map.Entry<String, S> victim = null;
+				long victimFullAt = Long.MAX_VALUE;
+				
+				for(int i=0; i<evictionSampleSize; i++) {
+					Map.Entry<String, S> entry = nextEntry();
+					if(entry == null) {
+						break;
+					}
+					if(entry.getKey().equals(insertedKey)) {
+						continue;
+					}
+					long fullAt = expiry.fullAt(entry.getValue(), currentTime);
+					if(fullAt < victimFullAt) {
+						victim = entry;
+						victimFullAt = fullAt;
+					}
+					if(fullAt <= currentTime) {
+						break;
+					}
+				}
+				
+				if(victim == null) {
+					break;
+				}
+				if(states.remove(victim.getKey(), victim.getValue())) {
+					evictions.capacityEvicted();
+				}
+			}
+		} finally {
+			cursorLock.unlock();
+		}
+	}
+	
+	private Map.Entry<String, S> nextEntry() {
+		if(cursor == null || !cursor.hasNext()) {
+			cursor = states.entrySet().iterator();
+			if(!cursor.hasNext()) {
+				return null;
+			}
+		}
+		return cursor.next();
+	}
+}
@@ -0,0 +1,103 @@
+package com.project.rate_limiter.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the per-service state stores with the configured key bound and storage mode,
+ * and sweeps all of them for idle keys in the background.
+ */
+@Component
+public class KeyStateStoreRegistry {
+	
+	private final StoreMode mode;
+	private final int maxKeys;
+	private final int evictionSampleSize;
+	private final int sweepBatchSize;
+	private final int offHeapSlots;
+	private final int offHeapSegments;
+	private final String offHeapDirectory;
+	private final List<StateStore> stores = new CopyOnWriteArrayList<>();
+	private final List<Consumer<StateStore>> listeners = new CopyOnWriteArrayList<>();
+	
+	public KeyStateStoreRegistry(@Value("${rate.store.mode:HEAP}") StoreMode mode,
+			@Value("${rate.store.max.keys:1000000}") int maxKeys,
+			@Value("${rate.store.eviction.sample.size:5}") int evictionSampleSize,
+			@Value("${rate.store.sweep.batch.size:10000}") int sweepBatchSize,
+			@Value("${rate.store.offheap.slots:1048576}") int offHeapSlots,
+			@Value("${rate.store.offheap.segments:64}") int offHeapSegments,
+			@Value("${rate.store.offheap.dir:}") String offHeapDirectory) {
+		this.mode = mode;
+		this.maxKeys = maxKeys;
+		this.evictionSampleSize = evictionSampleSize;
+		this.sweepBatchSize = sweepBatchSize;
+		this.offHeapSlots = offHeapSlots;
+		this.offHeapSegments = offHeapSegments;
+		this.offHeapDirectory = offHeapDirectory;
+	}
+	
+	// for states that do not fit into one long, always kept on the heap
+	public <S> KeyStateStore<S> create(String name, LongFunction<? extends S> initializer, StateExpiry<? super S> expiry) {
+		return register(new KeyStateStore<>(name, initializer, expiry, maxKeys, evictionSampleSize));
+	}
+	
+	public LongStateStore createLong(String name, LongUnaryOperator initializer, LongBinaryOperator fullAt) {
+		if(mode == StoreMode.HEAP) {
+			return register(new HeapLongStateStore(name, initializer, fullAt, maxKeys, evictionSampleSize));
+		}
+		return register(new OffHeapLongStateStore(name, initializer, fullAt, 
+				offHeapSlots, offHeapSegments, maxKeys, evictionSampleSize, tableFile(name)));
+	}
+	
+	@Scheduled(fixedDelayString = "${rate.store.sweep.interval.ms:1000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		for(StateStore store: stores) {
+			store.sweep(now, sweepBatchSize);
+		}
+	}
+	
+	public List<StateStore> stores() {
+		return List.copyOf(stores);
+	}
+	
+	public List<StoreStats> stats() {
+		return stores.stream().map(StateStore::stats).toList();
+	}
+	
+	// called with every store created so far and from now on, e.g. the lazily created policy stores
+	public synchronized void onCreate(Consumer<StateStore> listener) {
+		stores.forEach(listener);
+		listeners.add(listener);
+	}
+	
+	private synchronized <T extends StateStore> T register(T store) {
+		stores.add(store);
+		listeners.forEach(listener -> listener.accept(store));
+		return store;
+	}
+	
+	private Path tableFile(String name) {
+		if(offHeapDirectory == null || offHeapDirectory.isBlank()) {
+			return null;
+		}
+		try {
+			Path directory = Files.createDirectories(Path.of(offHeapDirectory));
+			return directory.resolve(name + ".table");
+		} catch(IOException ex) {
+			throw new UncheckedIOException("Cannot create state table directory " + offHeapDirectory, ex);
+		}
+	}
+}
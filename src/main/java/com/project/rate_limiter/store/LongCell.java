@@ -0,0 +1,11 @@
+package com.project.rate_limiter.store;
+
+/**
+ * Handle on one key's packed state, updated by the services with a CAS loop.
+ */
+public interface LongCell {
+	
+	long get();
+	
+	boolean compareAndSet(long expect, long update);
+}
@@ -0,0 +1,9 @@
+package com.project.rate_limiter.store;
+
+/**
+ * Store for algorithms whose whole per-key state fits into one long.
+ */
+public interface LongStateStore extends StateStore {
+	
+	LongCell cell(String key, long currentTime);
+}
@@ -0,0 +1,360 @@
+package com.project.rate_limiter.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Open-addressing table of fixed-width (fingerprint, state) slots kept outside the Java heap,
+ * either in direct buffers or in a memory-mapped file. Keys are reduced to 64-bit fingerprints,
+ * so a tracked key costs 16 bytes regardless of its length and adds nothing for the GC to trace.
+ * <p>
+ * The table is split into segments with one lock each. Lookups are lock-free; every write
+ * re-checks the slot under the segment lock, which lets deletions use backward shifting
+ * instead of tombstones. A reader that raced with a shift simply fails its CAS and retries.
+ */
+public class OffHeapLongStateStore implements LongStateStore {
+	
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final int SLOT_BYTES = 16;
+	private static final long EMPTY = 0L;
+	private static final int SWEEP_CHUNK = 256;
+	
+	private final String name;
+	private final LongUnaryOperator initializer;
+	private final LongBinaryOperator fullAt;
+	private final Segment[] segments;
+	private final int segmentMask;
+	private final int maxKeys;
+	private final int evictionSampleSize;
+	private final LongAdder size = new LongAdder();
+	private final EvictionCounters evictions = new EvictionCounters();
+	
+	private final ReentrantLock sweepLock = new ReentrantLock();
+	private int sweepSegment;
+	private int sweepSlot;
+	
+	/**
+	 * @param slots total slots, rounded up to a power of two and spread over the segments
+	 * @param file backing file to memory-map, or null for direct buffers
+	 */
+	public OffHeapLongStateStore(String name, LongUnaryOperator initializer, LongBinaryOperator fullAt,
+			int slots, int segmentCount, int maxKeys, int evictionSampleSize, Path file) {
+		this.name = name;
+		this.initializer = initializer;
+		this.fullAt = fullAt;
+		this.maxKeys = maxKeys;
+		this.evictionSampleSize = Math.max(1, evictionSampleSize);
+		
+		int segmentTotal = powerOfTwo(Math.max(1, segmentCount));
+		int segmentSlots = powerOfTwo(Math.max(2, powerOfTwo(slots) / segmentTotal));
+		int segmentMaxEntries = (int) Math.max(1, Math.min(segmentSlots * 3L / 4, 
+				((long) maxKeys + segmentTotal - 1) / segmentTotal));
+		
+		if((long) segmentSlots * SLOT_BYTES > Integer.MAX_VALUE) {
+			throw new IllegalStateException("rate.store.offheap.slots is too large for " + segmentTotal + " segments");
+		}
+		
+		this.segmentMask = segmentTotal - 1;
+		this.segments = new Segment[segmentTotal];
+		ByteBuffer[] buffers = allocate(file, segmentTotal, (long) segmentSlots * SLOT_BYTES);
+		for(int i=0; i<segmentTotal; i++) {
+			segments[i] = new Segment(buffers[i], segmentSlots, segmentMaxEntries);
+		}
+	}
+	
+	@Override
+	public LongCell cell(String key, long currentTime) {
+		long fingerprint = fingerprint(key);
+		Segment segment = segments[(int) (fingerprint >>> 40) & segmentMask];
+		if(segment.find(fingerprint) < 0) {
+			segment.insert(fingerprint, initializer.applyAsLong(currentTime), currentTime);
+		}
+		return new Cell(segment, fingerprint, currentTime);
+	}
+	
+	@Override
+	public void sweep(long currentTime, int budget) {
+		sweepLock.lock();
+		try {
+			int visited = 0;
+			while(visited < budget) {
+				Segment segment = segments[sweepSegment];
+				int chunk = Math.min(SWEEP_CHUNK, budget - visited);
+				sweepSlot = segment.sweep(sweepSlot, chunk, currentTime);
+				visited += chunk;
+				
+				if(sweepSlot >= segment.capacity) {
+					sweepSlot = 0;
+					sweepSegment = (sweepSegment + 1) & segmentMask;
+				}
+			}
+			evictions.sweepFinished(currentTime);
+		} finally {
+			sweepLock.unlock();
+		}
+	}
+	
+	@Override
+	public int size() {
+		return size.intValue();
+	}
+	
+	@Override
+	public StoreStats stats() {
+		return evictions.stats(name, size(), maxKeys);
+	}
+	
+	// 64-bit FNV-1a over the UTF-16 chars, 0 is reserved for empty slots
+	static long fingerprint(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for(int i=0; i<key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash == EMPTY ? 1 : hash;
+	}
+	
+	private static int powerOfTwo(int value) {
+		int highest = Integer.highestOneBit(value);
+		return highest == value ? value : highest << 1;
+	}
+	
+	private static ByteBuffer[] allocate(Path file, int count, long bytesPerSegment) {
+		ByteBuffer[] buffers = new ByteBuffer[count];
+		if(file == null) {
+			for(int i=0; i<count; i++) {
+				buffers[i] = ByteBuffer.allocateDirect((int) bytesPerSegment);
+			}
+			return buffers;
+		}
+		
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, 
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long expected = bytesPerSegment * count;
+			// a table written with another layout cannot be reused, start from zeroed slots
+			if(channel.size() != expected) {
+				channel.truncate(0);
+			}
+			for(int i=0; i<count; i++) {
+				buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * bytesPerSegment, bytesPerSegment);
+			}
+			return buffers;
+		} catch(IOException ex) {
+			throw new UncheckedIOException("Cannot map state table " + file, ex);
+		}
+	}
+	
+	private final class Cell implements LongCell {
+		
+		private final Segment segment;
+		private final long fingerprint;
+		private final long createdAt;
+		
+		Cell(Segment segment, long fingerprint, long createdAt) {
+			this.segment = segment;
+			this.fingerprint = fingerprint;
+			this.createdAt = createdAt;
+		}
+		
+		@Override
+		public long get() {
+			int slot = segment.find(fingerprint);
+			// evicted since the lookup: it is back to its initial state
+			return slot < 0 ? initializer.applyAsLong(createdAt) : segment.stateAt(slot);
+		}
+		
+		@Override
+		public boolean compareAndSet(long expect, long update) {
+			segment.lock.lock();
+			try {
+				int slot = segment.find(fingerprint);
+				if(slot < 0) {
+					if(expect != initializer.applyAsLong(createdAt)) {
+						return false;
+					}
+					segment.insertLocked(fingerprint, update, createdAt);
+					return true;
+				}
+				if(segment.stateAt(slot) != expect) {
+					return false;
+				}
+				segment.setState(slot, update);
+				return true;
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+	
+	private final class Segment {
+		
+		final ReentrantLock lock = new ReentrantLock();
+		final ByteBuffer table;
+		final int capacity;
+		final int mask;
+		final int maxEntries;
+		int entries;
+		int evictionCursor;
+		
+		Segment(ByteBuffer table, int capacity, int maxEntries) {
+			this.table = table;
+			this.capacity = capacity;
+			this.mask = capacity - 1;
+			this.maxEntries = maxEntries;
+			
+			// a mapped table may still hold the slots of a previous run
+			for(int slot=0; slot<capacity; slot++) {
+				if(fingerprintAt(slot) != EMPTY) {
+					entries++;
+				}
+			}
+			size.add(entries);
+		}
+		
+		int find(long fingerprint) {
+			int slot = home(fingerprint);
+			for(int probes=0; probes<capacity; probes++) {
+				long current = fingerprintAt(slot);
+				if(current == fingerprint) {
+					return slot;
+				}
+				if(current == EMPTY) {
+					return -1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+		
+		void insert(long fingerprint, long state, long currentTime) {
+			lock.lock();
+			try {
+				if(find(fingerprint) < 0) {
+					insertLocked(fingerprint, state, currentTime);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		void insertLocked(long fingerprint, long state, long currentTime) {
+			if(entries >= maxEntries) {
+				evictLocked(currentTime);
+			}
+			int slot = home(fingerprint);
+			while(fingerprintAt(slot) != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			// publish the state before the fingerprint that makes it reachable
+			setState(slot, state);
+			setFingerprint(slot, fingerprint);
+			entries++;
+			size.increment();
+		}
+		
+		int sweep(int from, int count, long currentTime) {
+			lock.lock();
+			try {
+				int slot = from;
+				for(int visited=0; visited<count && slot<capacity; visited++) {
+					if(fingerprintAt(slot) != EMPTY && fullAt.applyAsLong(stateAt(slot), currentTime) <= currentTime) {
+						// a later entry may shift into this slot, so it is looked at again
+						removeLocked(slot);
+						evictions.idleEvicted();
+					} else {
+						slot++;
+					}
+				}
+				return slot;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		// evicts the sampled entry that is closest to full
+		private void evictLocked(long currentTime) {
+			int victim = -1;
+			long victimFullAt = Long.MAX_VALUE;
+			int sampled = 0;
+			
+			for(int probes=0; probes<capacity && sampled<evictionSampleSize; probes++) {
+				int slot = evictionCursor;
+				evictionCursor = (evictionCursor + 1) & mask;
+				if(fingerprintAt(slot) == EMPTY) {
+					continue;
+				}
+				sampled++;
+				long candidate = fullAt.applyAsLong(stateAt(slot), currentTime);
+				if(candidate < victimFullAt) {
+					victim = slot;
+					victimFullAt = candidate;
+				}
+			}
+			
+			if(victim >= 0) {
+				removeLocked(victim);
+				evictions.capacityEvicted();
+			}
+		}
+		
+		// backward-shift deletion keeps every probe chain intact without tombstones
+		private void removeLocked(int slot) {
+			int hole = slot;
+			int next = (hole + 1) & mask;
+			while(true) {
+				long fingerprint = fingerprintAt(next);
+				if(fingerprint == EMPTY) {
+					break;
+				}
+				int home = home(fingerprint);
+				boolean reachable = (hole <= next) 
+						? (hole < home && home <= next) 
+						: (hole < home || home <= next);
+				if(!reachable) {
+					setState(hole, stateAt(next));
+					setFingerprint(hole, fingerprint);
+					hole = next;
+				}
+				next = (next + 1) & mask;
+			}
+			setFingerprint(hole, EMPTY);
+			setState(hole, 0L);
+			entries--;
+			size.decrement();
+		}
+		
+		private int home(long fingerprint) {
+			return (int) fingerprint & mask;
+		}
+		
+		long fingerprintAt(int slot) {
+			return (long) LONGS.getVolatile(table, slot * SLOT_BYTES);
+		}
+		
+		long stateAt(int slot) {
+			return (long) LONGS.getVolatile(table, slot * SLOT_BYTES + 8);
+		}
+		
+		void setFingerprint(int slot, long fingerprint) {
+			LONGS.setVolatile(table, slot * SLOT_BYTES, fingerprint);
+		}
+		
+		void setState(int slot, long state) {
+			LONGS.setVolatile(table, slot * SLOT_BYTES + 8, state);
+		}
+	}
+}
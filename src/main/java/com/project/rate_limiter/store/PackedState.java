@@ -0,0 +1,33 @@
+package com.project.rate_limiter.store;
+
+/**
+ * Packs a millisecond timestamp (upper 42 bits) and a counter (lower 22 bits) into one
+ * long, so a whole per-key state can be swapped with a single compare-and-set.
+ */
+public final class PackedState {
+
+	public static final int COUNT_BITS = 22;
+	public static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+	private static final long COUNT_MASK = MAX_COUNT;
+
+	private PackedState() {}
+
+	public static long pack(long timestamp, int count) {
+		return (timestamp << COUNT_BITS) | (count & COUNT_MASK);
+	}
+
+	public static long timestamp(long state) {
+		return state >>> COUNT_BITS;
+	}
+
+	public static int count(long state) {
+		return (int) (state & COUNT_MASK);
+	}
+
+	public static void checkCount(String property, int value) {
+		if(value < 0 || value > MAX_COUNT) {
+			throw new IllegalStateException(property + " must be between 0 and " + MAX_COUNT + " but was " + value);
+		}
+	}
+}
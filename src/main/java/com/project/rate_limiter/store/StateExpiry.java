@@ -0,0 +1,11 @@
+package com.project.rate_limiter.store;
+
+/**
+ * Tells a {@link KeyStateStore} when a key's state is back to "full" (window elapsed,
+ * bucket refilled), i.e. when dropping it can no longer change any decision.
+ */
+@FunctionalInterface
+public interface StateExpiry<S> {
+	
+	long fullAt(S state, long currentTime);
+}
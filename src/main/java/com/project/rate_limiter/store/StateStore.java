@@ -0,0 +1,11 @@
+package com.project.rate_limiter.store;
+
+public interface StateStore {
+	
+	// drops up to budget idle entries, resuming where the previous sweep stopped
+	void sweep(long currentTime, int budget);
+	
+	int size();
+	
+	StoreStats stats();
+}
@@ -0,0 +1,6 @@
+package com.project.rate_limiter.store;
+
+public enum StoreMode {
+	HEAP,
+	OFF_HEAP
+}
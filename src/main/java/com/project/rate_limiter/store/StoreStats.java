@@ -0,0 +1,10 @@
+package com.project.rate_limiter.store;
+
+public record StoreStats(
+		String name,
+		int size,
+		int maxKeys,
+		long idleEvictions,
+		long capacityEvictions,
+		double evictionsPerSecond
+) {}
@@ -0,0 +1,36 @@
+-- KEYS[1]: hash {start, count}
+-- ARGV: limit, windowMs, nowMs (<= 0 uses the Redis server clock), cost (1 when missing)
+-- returns {allowed, remaining, retryAfterMs, timeToFullMs}
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local cost = tonumber(ARGV[4]) or 1
+if now <= 0 then
+	local time = redis.call('TIME')
+	now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+end
+
+local state = redis.call('HMGET', KEYS[1], 'start', 'count')
+local start = tonumber(state[1])
+local count = tonumber(state[2])
+
+-- window reset?
+if start == nil or now - start > window then
+	if cost > limit then
+		return {0, limit, window, window}
+	end
+	redis.call('HSET', KEYS[1], 'start', now, 'count', cost)
+	redis.call('PEXPIRE', KEYS[1], window + 1)
+	return {1, limit - cost, 0, window}
+end
+
+local resetIn = window - (now - start)
+
+-- within current window
+if count + cost <= limit then
+	redis.call('HINCRBY', KEYS[1], 'count', cost)
+	return {1, limit - count - cost, 0, resetIn}
+end
+
+-- blocked
+return {0, math.max(0, limit - count), resetIn, resetIn}
@@ -0,0 +1,40 @@
+-- KEYS[1]: token bucket hash {tokens, ts}, shared with token_bucket.lua
+-- ARGV: capacity, refillRatePerSecond, nowMs (<= 0 uses the Redis server clock), wanted tokens,
+--       unused tokens of the caller's expired lease to give back first
+-- returns {granted, tokensLeft, retryAfterMs, timeToFullMs}
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local wanted = tonumber(ARGV[4])
+local returned = tonumber(ARGV[5])
+if now <= 0 then
+	local time = redis.call('TIME')
+	now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+end
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil then
+	tokens = capacity
+	ts = now
+end
+
+local add = math.floor((now - ts) / 1000) * rate
+if add > 0 then
+	tokens = math.min(capacity, tokens + add)
+	ts = now
+end
+tokens = math.min(capacity, tokens + returned)
+
+local msPerToken = math.floor(1000 / rate)
+
+if tokens > 0 then
+	local granted = math.min(wanted, tokens)
+	tokens = tokens - granted
+	redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', ts)
+	redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / rate) * 1000 + 1000)
+	return {granted, tokens, 0, msPerToken * (capacity - tokens)}
+end
+
+return {0, 0, msPerToken, msPerToken}
@@ -0,0 +1,10 @@
+-- KEYS[1]: token bucket hash {tokens, ts}
+-- ARGV: capacity, unused tokens
+-- a bucket that already expired is full again, so there is nothing to give back to
+if redis.call('EXISTS', KEYS[1]) == 0 then
+	return 0
+end
+local tokens = tonumber(redis.call('HGET', KEYS[1], 'tokens'))
+tokens = math.min(tonumber(ARGV[1]), tokens + tonumber(ARGV[2]))
+redis.call('HSET', KEYS[1], 'tokens', tokens)
+return tokens
@@ -0,0 +1,37 @@
+-- KEYS[1]: sorted set of admitted request units scored by timestamp
+-- ARGV: limit, windowMs, nowMs (<= 0 uses the Redis server clock), unique member id, cost (1 when missing)
+-- returns {allowed, remaining, retryAfterMs, timeToFullMs}
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local cost = tonumber(ARGV[5]) or 1
+if now <= 0 then
+	local time = redis.call('TIME')
+	now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+end
+
+-- drop every request older than the window
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window - 1)
+local count = redis.call('ZCARD', KEYS[1])
+
+if count + cost > limit then
+	-- room for cost more units once the excess oldest ones have left the window
+	local excess = count + cost - limit
+	local retryAfter = window
+	if excess <= count then
+		local oldest = redis.call('ZRANGE', KEYS[1], excess - 1, excess - 1, 'WITHSCORES')
+		retryAfter = math.max(0, window - (now - tonumber(oldest[2])))
+	end
+	return {0, math.max(0, limit - count), retryAfter, retryAfter}
+end
+
+--allow, one member per unit
+if cost == 1 then
+	redis.call('ZADD', KEYS[1], now, ARGV[4])
+else
+	for i = 1, cost do
+		redis.call('ZADD', KEYS[1], now, ARGV[4] .. ':' .. i)
+	end
+end
+redis.call('PEXPIRE', KEYS[1], window + 1)
+return {1, limit - count - cost, window, window}
@@ -0,0 +1,40 @@
+-- KEYS[1]: hash {tokens, ts}
+-- ARGV: capacity, refillRatePerSecond, nowMs (<= 0 uses the Redis server clock), cost (1 when missing)
+-- returns {allowed, remaining, retryAfterMs, timeToFullMs}
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local cost = tonumber(ARGV[4]) or 1
+if now <= 0 then
+	local time = redis.call('TIME')
+	now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+end
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil then
+	tokens = capacity
+	ts = now
+end
+
+-- refill in whole seconds, like the in-memory bucket
+local add = math.floor((now - ts) / 1000) * rate
+if add > 0 then
+	tokens = math.min(capacity, tokens + add)
+	ts = now
+end
+
+local msPerToken = math.floor(1000 / rate)
+
+if tokens >= cost then
+	tokens = tokens - cost
+	redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', ts)
+	-- the key is dropped once the bucket would be full again
+	redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / rate) * 1000 + 1000)
+	return {1, tokens, 0, msPerToken * (capacity - tokens)}
+end
+
+-- not enough tokens: nothing to write back, the refill is recomputed from ts next time
+local retryAfter = msPerToken * (cost - tokens)
+return {0, tokens, retryAfter, retryAfter}
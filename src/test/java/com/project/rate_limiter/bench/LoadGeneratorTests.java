@@ -0,0 +1,48 @@
+package com.project.rate_limiter.bench;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+
+class LoadGeneratorTests {
+
+	@Test
+	void contendedInProcessRunAdmitsExactlyTheLimitPerKey() throws Exception {
+		LoadGenerator generator = new LoadGenerator(new CoarseClock(0), null);
+		ReflectionTestUtils.setField(generator, "MAX_THREADS", 8);
+		ReflectionTestUtils.setField(generator, "MAX_DURATION_MS", 1_000L);
+		ReflectionTestUtils.setField(generator, "MAX_KEYS", 1_000);
+		RateLimitPolicy policy = new RateLimitPolicy("bench", RateLimiterAlgorithm.FIXED_WINDOW, 10, 60_000L, 1, List.of());
+
+		BenchReport report = generator.run(new BenchPlan(policy, null, 8, 300L, 50, "uniform", 0, 1L));
+
+		assertEquals(500, report.admitted());
+		assertEquals(0, report.errors());
+		assertEquals(0.0, report.drift(), 1e-9);
+		assertTrue(report.requests() > report.admitted());
+		assertTrue(report.p50Micros() <= report.p999Micros());
+	}
+
+	@Test
+	void zipfianFavoursTheFirstKeys() {
+		KeyDistribution distribution = KeyDistribution.zipfian(100, 0.99);
+		SplittableRandom random = new SplittableRandom(3);
+		int[] counts = new int[100];
+		for(int i=0; i<100_000; i++) {
+			counts[distribution.next(random)]++;
+		}
+
+		assertTrue(counts[0] > counts[1]);
+		assertTrue(counts[1] > counts[10]);
+		assertTrue(counts[10] > counts[99]);
+	}
+}
@@ -0,0 +1,193 @@
+package com.project.rate_limiter.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.controller.dto.BatchCheck;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.monitoring.DecisionMetrics;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.service.BatchDecisionService;
+import com.project.rate_limiter.service.FixedSizeRateLimiterService;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+class ClusterRouterTests {
+
+	private static final CoarseClock CLOCK = new CoarseClock(0);
+
+	@Test
+	void leavingNodeOnlyMovesItsOwnKeys() {
+		HashRing three = new HashRing(List.of("a:1", "b:1", "c:1"), 128);
+		HashRing two = new HashRing(List.of("a:1", "b:1"), 128);
+
+		Map<String, Integer> owned = new HashMap<>();
+		for(int i=0; i<30_000; i++) {
+			String key = "user-" + i;
+			String owner = three.owner(key);
+			owned.merge(owner, 1, Integer::sum);
+			if(!owner.equals("c:1")) {
+				assertEquals(owner, two.owner(key));
+			}
+		}
+		for(int count: owned.values()) {
+			assertTrue(count > 7_500 && count < 12_500, "uneven slices " + owned);
+		}
+	}
+
+	@Test
+	void everyKeyIsLimitedExactlyOnceAcrossNodes() throws Exception {
+		String nodes = "127.0.0.1:" + freePort() + ",127.0.0.1:" + freePort();
+		Node a = new Node(nodes, nodes.split(",")[0]);
+		Node b = new Node(nodes, nodes.split(",")[1]);
+		try {
+			DecisionResult result = new DecisionResult();
+			for(int key=0; key<20; key++) {
+				int allowed = 0;
+				for(int i=0; i<30; i++) {
+					Node entry = i % 2 == 0 ? a : b;
+					if(entry.router.decide(entry.service, "user-" + key, 1, null, result).isAllowed()) {
+						allowed++;
+					}
+				}
+				assertEquals(10, allowed);
+			}
+			assertEquals(2, a.router.liveNodes().size());
+			// only the owner holds the exhausted state, the other node has never seen the key
+			assertTrue(a.service.decide("user-0", new DecisionResult()).isAllowed() 
+					!= b.service.decide("user-0", new DecisionResult()).isAllowed());
+		} finally {
+			a.stop();
+			b.stop();
+		}
+	}
+
+	@Test
+	void forwardedRequestsOnlyCarryThePolicyName() throws Exception {
+		String nodes = "127.0.0.1:" + freePort() + ",127.0.0.1:" + freePort();
+		String other = nodes.split(",")[1];
+		Node a = new Node(nodes, nodes.split(",")[0]);
+		Node b = new Node(nodes, other);
+		try {
+			String key = "user-0";
+			for(int i=1; !a.router.owner(key).equals(other); i++) {
+				key = "user-" + i;
+			}
+			// parameters b does not have: it decides under its defaults, never under these
+			RateLimitPolicy forged = new RateLimitPolicy("forged", RateLimiterAlgorithm.FIXED_WINDOW, 1_000, 0L, 0, List.of());
+			DecisionResult result = new DecisionResult();
+			int allowed = 0;
+			for(int i=0; i<30; i++) {
+				if(a.router.decide(a.service, key, 1, forged, result).isAllowed()) {
+					allowed++;
+				}
+			}
+			assertEquals(10, allowed);
+			assertEquals(2, a.router.liveNodes().size());
+		} finally {
+			a.stop();
+			b.stop();
+		}
+	}
+
+	@Test
+	void batchChecksAreDecidedByTheKeysOwner() throws Exception {
+		String nodes = "127.0.0.1:" + freePort() + ",127.0.0.1:" + freePort();
+		String other = nodes.split(",")[1];
+		Node a = new Node(nodes, nodes.split(",")[0]);
+		Node b = new Node(nodes, other);
+		try {
+			String key = "user-0";
+			for(int i=1; !a.router.owner(key).equals(other); i++) {
+				key = "user-" + i;
+			}
+			int allowed = 0;
+			for(int i=0; i<30; i++) {
+				Node entry = i % 2 == 0 ? a : b;
+				if(entry.batch.decide(List.of(new BatchCheck(key, "FIXED_WINDOW", 1)), false).allowed()) {
+					allowed++;
+				}
+			}
+			assertEquals(10, allowed);
+
+			// refunds stay on the node deciding the batch, so it only takes keys it owns
+			List<BatchCheck> remote = List.of(new BatchCheck(key, "FIXED_WINDOW", 1));
+			assertThrows(IllegalArgumentException.class, () -> a.batch.decide(remote, true));
+			assertFalse(b.batch.decide(remote, true).allowed());
+		} finally {
+			a.stop();
+			b.stop();
+		}
+	}
+
+	@Test
+	void unreachablePeerLeavesTheRing() throws Exception {
+		String self = "127.0.0.1:" + freePort();
+		String nodes = self + ",127.0.0.1:" + freePort();
+		ClusterRouter router = new ClusterRouter(nodes, self, ClusterRouter.Mode.PARTITIONED, 128, 200L, 60_000L, CLOCK, gossip(nodes, self));
+		RateLimiterService service = service();
+
+		for(int key=0; key<50; key++) {
+			assertTrue(router.decide(service, "user-" + key, 1, null, new DecisionResult()).isAllowed());
+		}
+		assertEquals(List.of(self), router.liveNodes());
+	}
+
+	private static final class Node {
+
+		private final ClusterRouter router;
+		private final RateLimiterService service = service();
+		private final PeerServer server;
+		private final BatchDecisionService batch;
+
+		private Node(String nodes, String self) {
+			GossipCounters gossip = gossip(nodes, self);
+			this.router = new ClusterRouter(nodes, self, ClusterRouter.Mode.PARTITIONED, 128, 1_000L, 60_000L, CLOCK, gossip);
+			this.server = new PeerServer(self, router, gossip, new PolicyEngine("", new ObjectMapper(), List.of(service)), List.of(service));
+			server.start();
+			KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 10_000, 0, 0, "");
+			this.batch = new BatchDecisionService(List.of(service), CLOCK, new DecisionMetrics(false, 16, 32, stores), router);
+			ReflectionTestUtils.setField(batch, "MAX_CHECKS", 32);
+			ReflectionTestUtils.setField(batch, "REQUEST_LIMIT", 10);
+		}
+
+		private void stop() {
+			server.stop();
+			router.destroy();
+		}
+	}
+
+	private static RateLimiterService service() {
+		FixedSizeRateLimiterService service = new FixedSizeRateLimiterService(
+				new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 10_000, 0, 0, ""), CLOCK);
+		ReflectionTestUtils.setField(service, "REQUEST_LIMIT", 10);
+		ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", 60_000L);
+		return service;
+	}
+
+	private static GossipCounters gossip(String nodes, String self) {
+		return new GossipCounters(nodes, self, new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 10_000, 0, 0, ""));
+	}
+
+	private static int freePort() throws IOException {
+		try(ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.project.rate_limiter.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.service.FixedSizeRateLimiterService;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+class GossipCountersTests {
+
+	private static final String NODES = "a:1,b:1";
+	private static final long NOW = 1_700_000_000_000L;
+
+	@Test
+	void mergedCountsAreSharedAndIdempotent() {
+		GossipCounters a = counters("a:1");
+		GossipCounters b = counters("b:1");
+		DecisionResult result = new DecisionResult();
+
+		for(int i=0; i<6; i++) {
+			assertTrue(a.decide(RateLimiterAlgorithm.FIXED_WINDOW, "user", NOW, 1, null, result).isAllowed());
+		}
+		List<GossipCounters.Delta> deltas = a.drain(100);
+		assertEquals(1, deltas.size());
+		// delivered twice, the second copy changes nothing
+		for(int copy=0; copy<2; copy++) {
+			deltas.forEach(delta -> b.merge(a.slot(), delta, NOW));
+		}
+
+		int allowed = 0;
+		for(int i=0; i<10; i++) {
+			if(b.decide(RateLimiterAlgorithm.FIXED_WINDOW, "user", NOW, 1, null, result).isAllowed()) {
+				allowed++;
+			}
+		}
+		assertEquals(4, allowed);
+		assertTrue(a.drain(100).isEmpty());
+		// a fixed window starts over in the next one
+		long next = (NOW / 60_000 + 1) * 60_000;
+		assertTrue(b.decide(RateLimiterAlgorithm.FIXED_WINDOW, "user", next, 10, null, result).isAllowed());
+		assertFalse(b.decide(RateLimiterAlgorithm.FIXED_WINDOW, "user", next, 1, null, result).isAllowed());
+	}
+
+	@Test
+	void nodesShareOneLimitOverGossip() throws Exception {
+		String nodes = "127.0.0.1:" + freePort() + ",127.0.0.1:" + freePort();
+		Node a = new Node(nodes, nodes.split(",")[0]);
+		Node b = new Node(nodes, nodes.split(",")[1]);
+		try {
+			DecisionResult result = new DecisionResult();
+			for(int i=0; i<6; i++) {
+				assertTrue(a.router.decide(a.service, "user", 1, null, result).isAllowed());
+			}
+			a.router.gossip();
+			long deadline = System.currentTimeMillis() + 5_000;
+			// a zero cost decision only reads the merged count
+			while(b.gossip.decide(RateLimiterAlgorithm.FIXED_WINDOW, "user", System.currentTimeMillis(), 0, null, result).remaining() > 4
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+
+			int allowed = 0;
+			for(int i=0; i<10; i++) {
+				if(b.router.decide(b.service, "user", 1, null, result).isAllowed()) {
+					allowed++;
+				}
+			}
+			assertEquals(4, allowed);
+		} finally {
+			a.stop();
+			b.stop();
+		}
+	}
+
+	private static final class Node {
+
+		private final GossipCounters gossip;
+		private final ClusterRouter router;
+		private final FixedSizeRateLimiterService service;
+		private final PeerServer server;
+
+		private Node(String nodes, String self) {
+			KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 10_000, 0, 0, "");
+			CoarseClock clock = new CoarseClock(0);
+			this.gossip = limited(new GossipCounters(nodes, self, stores));
+			this.service = new FixedSizeRateLimiterService(stores, clock);
+			ReflectionTestUtils.setField(service, "REQUEST_LIMIT", 10);
+			ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", 60_000L);
+			this.router = new ClusterRouter(nodes, self, ClusterRouter.Mode.GOSSIP, 128, 1_000L, 60_000L, clock, gossip);
+			this.server = new PeerServer(self, router, gossip, new PolicyEngine("", new ObjectMapper(), List.of(service)), List.of(service));
+			server.start();
+		}
+
+		private void stop() {
+			server.stop();
+			router.destroy();
+		}
+	}
+
+	private static GossipCounters counters(String self) {
+		return limited(new GossipCounters(NODES, self, new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 10_000, 0, 0, "")));
+	}
+
+	private static GossipCounters limited(GossipCounters counters) {
+		ReflectionTestUtils.setField(counters, "REQUEST_LIMIT", 10);
+		ReflectionTestUtils.setField(counters, "TIME_WINDOW_MS", 60_000L);
+		return counters;
+	}
+
+	private static int freePort() throws IOException {
+		try(ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.project.rate_limiter.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitTests {
+
+	private static final long FAST = 1_000_000L;
+	private static final long SLOW = 50_000_000L;
+
+	@Test
+	void shedsOnceTheLimitIsInFlight() {
+		ConcurrencyLimit limit = limit(AdaptiveConcurrencyLimiter.Strategy.AIMD, 4);
+
+		for(int i=0; i<4; i++) {
+			assertTrue(limit.tryAcquire());
+		}
+		assertFalse(limit.tryAcquire());
+		limit.release(FAST, false);
+		assertTrue(limit.tryAcquire());
+		assertEquals(4, limit.stats().inFlight());
+		assertEquals(1, limit.stats().shed());
+	}
+
+	@Test
+	void aimdGrowsWhileSaturatedAndBacksOffOnSlowRequests() {
+		ConcurrencyLimit limit = limit(AdaptiveConcurrencyLimiter.Strategy.AIMD, 10);
+
+		cycle(limit, 2_000, FAST);
+		int grown = limit.limit();
+		assertTrue(grown > 20, "limit " + grown);
+		cycle(limit, 50, SLOW);
+		assertTrue(limit.limit() < grown / 4, "limit " + limit.limit());
+	}
+
+	@Test
+	void gradientShrinksAsLatencyRisesAndNotWhileIdle() {
+		ConcurrencyLimit limit = limit(AdaptiveConcurrencyLimiter.Strategy.GRADIENT, 10);
+
+		cycle(limit, 300, FAST);
+		int grown = limit.limit();
+		assertTrue(grown > 50, "limit " + grown);
+		// before the long-term latency catches up with the new one
+		cycle(limit, 3, SLOW);
+		assertTrue(limit.limit() < grown / 2, "limit " + limit.limit());
+
+		// one request at a time never uses half the limit, so it does not grow it
+		int shrunk = limit.limit();
+		for(int i=0; i<1_000; i++) {
+			assertTrue(limit.tryAcquire());
+			limit.release(FAST, false);
+		}
+		assertTrue(limit.limit() <= shrunk);
+	}
+
+	// fills the limit and releases every request with the latency, rounds times
+	private static void cycle(ConcurrencyLimit limit, int rounds, long latencyNanos) {
+		for(int round=0; round<rounds; round++) {
+			int acquired = 0;
+			while(limit.tryAcquire()) {
+				acquired++;
+			}
+			for(int i=0; i<acquired; i++) {
+				limit.release(latencyNanos, false);
+			}
+		}
+	}
+
+	private static ConcurrencyLimit limit(AdaptiveConcurrencyLimiter.Strategy strategy, int initial) {
+		return new ConcurrencyLimit(strategy, initial, 2, 200, 10L, 0.9, 2.0);
+	}
+}
@@ -0,0 +1,57 @@
+package com.project.rate_limiter.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingLogTests {
+
+	@Test
+	void growsInOrderWhileTheRingIsWrapped() {
+		SlidingLog log = new SlidingLog(32);
+		for(long t=1; t<=16; t++) {
+			log.add(t, 32);
+		}
+		assertEquals(10, log.expireBefore(11));
+
+		// the head sits mid-array, so these wrap past the end until the ring is full again
+		for(long t=17; t<=26; t++) {
+			log.add(t, 32);
+		}
+		assertEquals(16, log.size());
+		log.add(27, 32);
+
+		assertEquals(17, log.size());
+		for(int i=0; i<log.size(); i++) {
+			assertEquals(11 + i, log.at(i));
+		}
+		assertEquals(11, log.oldest());
+		assertEquals(27, log.newest());
+	}
+
+	@Test
+	void refundsRemoveEntriesAcrossTheWrapPoint() {
+		SlidingLog log = new SlidingLog(16);
+		for(long t=1; t<=15; t++) {
+			log.add(t, 16);
+		}
+		assertEquals(8, log.expireBefore(9));
+		log.add(16, 16);
+		log.add(17, 16);
+		log.add(17, 16);
+		log.add(18, 16);
+
+		assertEquals(1, log.remove(16, 1));
+		assertEquals(2, log.remove(17, 5));
+		assertEquals(0, log.remove(16, 1));
+		log.add(19, 16);
+
+		long[] expected = {9, 10, 11, 12, 13, 14, 15, 18, 19};
+		assertEquals(expected.length, log.size());
+		for(int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], log.at(i));
+		}
+		assertEquals(9, log.oldest());
+		assertEquals(19, log.newest());
+	}
+}
@@ -0,0 +1,356 @@
+package com.project.rate_limiter.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.cluster.ClusterRouter;
+import com.project.rate_limiter.cluster.GossipCounters;
+import com.project.rate_limiter.concurrency.AdaptiveConcurrencyLimiter;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.monitoring.DecisionMetrics;
+import com.project.rate_limiter.policy.PolicyEngine;
+import com.project.rate_limiter.service.CompositeRateLimiterService;
+import com.project.rate_limiter.service.FixedSizeRateLimiterService;
+import com.project.rate_limiter.service.GcraRateLimiterService;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.shaping.TrafficShaper;
+import com.project.rate_limiter.sketch.HeavyHitterGate;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+
+class RateLimiterFilterTests {
+
+	private static final CoarseClock CLOCK = new CoarseClock(0);
+
+	@Test
+	void deniedRequestsNeverReachTheChain() throws Exception {
+		assertTrue(RateLimiterFilter.ORDER < SecurityProperties.DEFAULT_FILTER_ORDER);
+		RateLimiterFilter filter = filter();
+
+		for(int i=0; i<3; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("POST", "/limiter/api/check");
+			request.setQueryString("x=1&alg=FIXED_WINDOW");
+			request.addHeader("X-User-Id", "user");
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			MockFilterChain chain = new MockFilterChain();
+
+			filter.doFilter(request, response, chain);
+			if(i < 2) {
+				assertEquals(200, response.getStatus());
+				assertEquals(request, chain.getRequest());
+			} else {
+				assertEquals(429, response.getStatus());
+				assertNull(chain.getRequest());
+				assertEquals("Too many requests\n", response.getContentAsString());
+				assertEquals("FIXED_WINDOW", response.getHeader("X-RateLimit-Algorithm"));
+			}
+		}
+	}
+
+	@Test
+	void requestsBeyondTheConcurrencyLimitAreShed() throws Exception {
+		RateLimiterFilter filter = filter(new AdaptiveConcurrencyLimiter(true, false, 
+				AdaptiveConcurrencyLimiter.Strategy.AIMD, 1, 1, 1, 250L, 0.9, 2.0));
+		MockHttpServletResponse nested = new MockHttpServletResponse();
+
+		// a second request arriving while the first is still in the chain
+		filter.doFilter(request("first"), new MockHttpServletResponse(), 
+				(request, response) -> filter.doFilter(request("second"), nested, new MockFilterChain()));
+		assertEquals(503, nested.getStatus());
+		assertEquals("1", nested.getHeader("X-Concurrency-Limit"));
+
+		MockHttpServletResponse after = new MockHttpServletResponse();
+		filter.doFilter(request("third"), after, new MockFilterChain());
+		assertEquals(200, after.getStatus());
+	}
+
+	@Test
+	void costHeaderConsumesSeveralUnits() throws Exception {
+		RateLimiterFilter filter = filter();
+		MockHttpServletRequest weighted = request("bulk");
+		weighted.addHeader("X-RateLimit-Cost", "2");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(weighted, response, new MockFilterChain());
+		assertEquals(200, response.getStatus());
+		assertEquals("0", response.getHeader("X-RateLimit-Remaining"));
+
+		for(String invalidCost: new String[] {"0", "3", "2147483647"}) {
+			MockHttpServletRequest invalid = request("bulk");
+			invalid.addHeader("X-RateLimit-Cost", invalidCost);
+			response = new MockHttpServletResponse();
+			filter.doFilter(invalid, response, new MockFilterChain());
+			assertEquals(400, response.getStatus());
+		}
+
+		response = new MockHttpServletResponse();
+		filter.doFilter(request("bulk"), response, new MockFilterChain());
+		assertEquals(429, response.getStatus());
+	}
+
+	@Test
+	void compositeCostsAreBoundByTheTightestDefaultLimit() throws Exception {
+		RateLimiterFilter filter = filter();
+		ReflectionTestUtils.setField(filter, "REQUEST_LIMIT", 5);
+
+		MockHttpServletRequest tooExpensive = compositeRequest("3");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(tooExpensive, response, new MockFilterChain());
+		assertEquals(400, response.getStatus());
+		assertTrue(response.getContentAsString().endsWith("limit of 2"), response.getContentAsString());
+
+		response = new MockHttpServletResponse();
+		filter.doFilter(compositeRequest("2"), response, new MockFilterChain());
+		assertEquals(200, response.getStatus());
+		assertEquals("0", response.getHeader("X-RateLimit-Remaining"));
+	}
+
+	@Test
+	void shapedRequestsWaitForCapacityInsteadOfBeingDenied() throws Exception {
+		TrafficShaper shaper = new TrafficShaper(true, 1_000L, 10, 5L, 64);
+		RateLimiterFilter filter = filter(disabledConcurrency(), shaper, 200L);
+		try {
+			for(int i=0; i<2; i++) {
+				filter.doFilter(request("user"), new MockHttpServletResponse(), new MockFilterChain());
+			}
+			MockHttpServletRequest delayed = request("user");
+			delayed.setAsyncSupported(true);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			MockFilterChain chain = new MockFilterChain();
+			filter.doFilter(delayed, response, chain);
+			assertTrue(delayed.isAsyncStarted());
+			assertNull(chain.getRequest());
+
+			CountDownLatch released = new CountDownLatch(1);
+			((MockAsyncContext) delayed.getAsyncContext()).addDispatchHandler(released::countDown);
+			assertTrue(released.await(2, TimeUnit.SECONDS));
+			assertEquals(200, response.getStatus());
+			assertNotNull(response.getHeader("X-RateLimit-Delayed-Ms"));
+			assertEquals(0, shaper.queued());
+
+			// the container dispatches it again, now it reaches the chain
+			delayed.setDispatcherType(DispatcherType.ASYNC);
+			filter.doFilter(delayed, response, chain);
+			assertEquals(delayed, chain.getRequest());
+		} finally {
+			shaper.destroy();
+		}
+	}
+
+	@Test
+	void waitersOfAKeyAreReleasedInOrderAtTheEmissionRate() throws Exception {
+		TrafficShaper shaper = new TrafficShaper(true, 1_000L, 10, 5L, 64);
+		RateLimiterFilter filter = filter(disabledConcurrency(), shaper, 60_000L);
+		try {
+			for(int i=0; i<2; i++) {
+				filter.doFilter(bucketRequest(), new MockHttpServletResponse(), new MockFilterChain());
+			}
+			int waiters = 4;
+			List<Integer> order = new CopyOnWriteArrayList<>();
+			long[] releasedAt = new long[waiters];
+			CountDownLatch released = new CountDownLatch(waiters);
+			long queuedAt = System.nanoTime();
+			for(int i=0; i<waiters; i++) {
+				int waiter = i;
+				MockHttpServletRequest delayed = bucketRequest();
+				delayed.setAsyncSupported(true);
+				filter.doFilter(delayed, new MockHttpServletResponse(), new MockFilterChain());
+				assertTrue(delayed.isAsyncStarted());
+				((MockAsyncContext) delayed.getAsyncContext()).addDispatchHandler(() -> {
+					releasedAt[waiter] = System.nanoTime();
+					order.add(waiter);
+					released.countDown();
+				});
+			}
+			assertTrue(released.await(3, TimeUnit.SECONDS));
+			
+			// one emission every 100 ms: each waiter gets its own, first come first served
+			assertEquals(List.of(0, 1, 2, 3), order);
+			assertTrue(releasedAt[3] - queuedAt >= TimeUnit.MILLISECONDS.toNanos(350), 
+					"released after " + TimeUnit.NANOSECONDS.toMillis(releasedAt[3] - queuedAt) + " ms");
+			assertEquals(0, shaper.queued());
+		} finally {
+			shaper.destroy();
+		}
+	}
+
+	@Test
+	void timeoutDuringADecisionWaitsForItsOutcome() throws Exception {
+		TrafficShaper shaper = new TrafficShaper(true, 1_000L, 10, 5L, 64);
+		RateLimiterFilter filter = filter(disabledConcurrency(), shaper, 60_000L);
+		CountDownLatch deciding = new CountDownLatch(1);
+		CountDownLatch decide = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		// denied once, then admitted only once the test lets the re-decision finish
+		RateLimiterService slow = new RateLimiterService() {
+			@Override
+			public RateLimiterAlgorithm algorithm() {
+				return RateLimiterAlgorithm.FIXED_WINDOW;
+			}
+			@Override
+			public RateLimiterDecision decision(String user) {
+				return decision(user, 0L);
+			}
+			@Override
+			public RateLimiterDecision decision(String user, long currentTime) {
+				if(calls.incrementAndGet() == 1) {
+					return new RateLimiterDecision(false, 0, 20L, 20L);
+				}
+				deciding.countDown();
+				try {
+					decide.await(2, TimeUnit.SECONDS);
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return new RateLimiterDecision(true, 0, 0L, 0L);
+			}
+		};
+		@SuppressWarnings("unchecked")
+		Map<RateLimiterAlgorithm, RateLimiterService> services = 
+				(Map<RateLimiterAlgorithm, RateLimiterService>) ReflectionTestUtils.getField(filter, "services");
+		services.put(RateLimiterAlgorithm.FIXED_WINDOW, slow);
+		try {
+			MockHttpServletRequest delayed = request("slow");
+			delayed.setAsyncSupported(true);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilter(delayed, response, new MockFilterChain());
+			MockAsyncContext async = (MockAsyncContext) delayed.getAsyncContext();
+			CountDownLatch released = new CountDownLatch(1);
+			async.addDispatchHandler(released::countDown);
+			assertTrue(deciding.await(2, TimeUnit.SECONDS));
+
+			Thread timeout = new Thread(() -> {
+				try {
+					for(AsyncListener listener: async.getListeners()) {
+						listener.onTimeout(new AsyncEvent(async));
+					}
+				} catch(IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+			timeout.start();
+			timeout.join(100);
+			assertTrue(timeout.isAlive());
+
+			decide.countDown();
+			timeout.join(2_000);
+			assertTrue(released.await(2, TimeUnit.SECONDS));
+			assertEquals(200, response.getStatus());
+			assertNotNull(response.getHeader("X-RateLimit-Delayed-Ms"));
+			assertEquals(0, shaper.queued());
+		} finally {
+			decide.countDown();
+			shaper.destroy();
+		}
+	}
+
+	@Test
+	void policiesMatchTheNormalizedPath() {
+		for(String uri: new String[] {"/limiter/api/%65xport", "/limiter/api/export;jsessionid=1", 
+				"/limiter//api/export", "/limiter/demo/../api/export"}) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+			assertEquals("/limiter/api/export", RateLimiterFilter.path(request), uri);
+			assertFalse(RateLimiterFilter.plain(uri), uri);
+		}
+		for(String uri: new String[] {"/limiter/api/export", "/limiter/api/v1.2/.well-known/..x", "/"}) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+			assertTrue(RateLimiterFilter.plain(uri), uri);
+			assertSame(uri, RateLimiterFilter.path(request));
+		}
+		MockHttpServletRequest withContext = new MockHttpServletRequest("GET", "/app/limiter/api/export");
+		withContext.setContextPath("/app");
+		assertEquals("/limiter/api/export", RateLimiterFilter.path(withContext));
+	}
+
+	@Test
+	void queryParameterReadsOnlyExactNames() {
+		assertEquals("GCRA", RateLimiterFilter.queryParameter("algx=1&alg=GCRA&alg=TOKEN_BUCKET", "alg"));
+		assertEquals("", RateLimiterFilter.queryParameter("alg=", "alg"));
+		assertNull(RateLimiterFilter.queryParameter("alg", "alg"));
+		assertNull(RateLimiterFilter.queryParameter(null, "alg"));
+	}
+
+	private static MockHttpServletRequest request(String user) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/limiter/api/check");
+		request.addHeader("X-RateLimit-Alg", "FIXED_WINDOW");
+		request.addHeader("X-User-Id", user);
+		return request;
+	}
+
+	private static MockHttpServletRequest compositeRequest(String cost) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/limiter/api/check");
+		request.addHeader("X-RateLimit-Alg", "COMPOSITE");
+		request.addHeader("X-RateLimit-Cost", cost);
+		request.addHeader("X-User-Id", "composite");
+		return request;
+	}
+
+	private static MockHttpServletRequest bucketRequest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/limiter/api/check");
+		request.addHeader("X-RateLimit-Alg", "GCRA");
+		request.addHeader("X-User-Id", "queued");
+		return request;
+	}
+
+	private static RateLimiterFilter filter() {
+		return filter(disabledConcurrency());
+	}
+
+	private static RateLimiterFilter filter(AdaptiveConcurrencyLimiter concurrency) {
+		return filter(concurrency, new TrafficShaper(false, 1_000L, 10, 5L, 64), 60_000L);
+	}
+
+	private static AdaptiveConcurrencyLimiter disabledConcurrency() {
+		return new AdaptiveConcurrencyLimiter(false, false, AdaptiveConcurrencyLimiter.Strategy.GRADIENT, 20, 4, 1000, 250L, 0.9, 2.0);
+	}
+
+	private static RateLimiterFilter filter(AdaptiveConcurrencyLimiter concurrency, TrafficShaper shaper, long windowMs) {
+		KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 10_000, 0, 0, "");
+		FixedSizeRateLimiterService service = new FixedSizeRateLimiterService(stores, CLOCK);
+		ReflectionTestUtils.setField(service, "REQUEST_LIMIT", 2);
+		ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", windowMs);
+		// a burst of 2, then one every 100 ms
+		GcraRateLimiterService bucket = new GcraRateLimiterService(stores, CLOCK);
+		ReflectionTestUtils.setField(bucket, "CAPACITY", 2);
+		ReflectionTestUtils.setField(bucket, "REFILL_RATE_PER_SECOND", 10);
+		// the default composite limits: the tightest component admits 2
+		CompositeRateLimiterService composite = new CompositeRateLimiterService(stores, CLOCK, "5/6000,2/1000");
+		List<RateLimiterService> services = List.of(service, bucket, composite);
+		RateLimiterFilter filter = new RateLimiterFilter(services, new DecisionMetrics(false, 16, 32, stores),
+				new PolicyEngine("", new ObjectMapper(), services),
+				new HeavyHitterGate(false, 2, 60_000L, 1_024, 4, 32, CLOCK),
+				new ClusterRouter("", "", ClusterRouter.Mode.PARTITIONED, 128, 200L, 5_000L, CLOCK, new GossipCounters("", "", stores)),
+				concurrency, shaper);
+		ReflectionTestUtils.setField(filter, "REQUEST_LIMIT", 2);
+		ReflectionTestUtils.setField(filter, "TIME_WINDOW_MS", windowMs);
+		ReflectionTestUtils.setField(filter, "REFILL_RATE_PER_SECOND", 10);
+		return filter;
+	}
+}
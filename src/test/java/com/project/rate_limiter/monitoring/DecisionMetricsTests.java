@@ -0,0 +1,74 @@
+package com.project.rate_limiter.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DecisionMetricsTests {
+	
+	@Test
+	void histogramPercentilesStayWithinBucketError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long nanos=1; nanos<=10_000; nanos++) {
+			histogram.record(nanos * 1_000);
+		}
+		
+		long p50 = histogram.percentile(0.5);
+		long p99 = histogram.percentile(0.99);
+		assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.25, "p50 " + p50);
+		assertTrue(p99 >= 9_900_000 && p99 <= 9_900_000 * 1.25, "p99 " + p99);
+		assertEquals(10_000, histogram.count());
+	}
+	
+	@Test
+	void topKeysKeepsHeavyHittersUnderChurn() {
+		TopKeys top = new TopKeys(8);
+		for(int i=0; i<10_000; i++) {
+			top.offer("noise-" + i, 1);
+			if(i % 4 == 0) {
+				top.offer("attacker", 1);
+			}
+		}
+		
+		List<TopKeys.KeyCount> result = top.top(1);
+		assertEquals("attacker", result.get(0).key());
+		assertTrue(result.get(0).count() - result.get(0).error() <= 2_500);
+		assertTrue(result.get(0).count() >= 2_500);
+	}
+	
+	@Test
+	void countsDecisionsAndExportsThemThroughMicrometer() {
+		KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 100, 1 << 12, 8, "");
+		stores.createLong("fixed_window", currentTime -> 0L, (state, currentTime) -> 0L).cell("a", 0);
+		DecisionMetrics metrics = new DecisionMetrics(true, 1, 4, stores);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		metrics.bindTo(registry);
+		
+		for(int i=0; i<3; i++) {
+			metrics.record(RateLimiterAlgorithm.GCRA, "a", true, metrics.start());
+		}
+		metrics.record(RateLimiterAlgorithm.GCRA, "b", false, metrics.start());
+		
+		DecisionStats stats = metrics.snapshot().get(RateLimiterAlgorithm.GCRA);
+		assertEquals(3, stats.allowed());
+		assertEquals(1, stats.denied());
+		assertEquals("b", metrics.topDeniedKeys(1).get(0).key());
+		assertEquals(3.0, registry.get("ratelimiter.decisions")
+				.tags("algorithm", "GCRA", "outcome", "allowed").functionCounter().count());
+		assertEquals(4, registry.get("ratelimiter.decision.latency").tag("algorithm", "GCRA").functionTimer().count());
+		assertEquals(1.0, registry.get("ratelimiter.store.size").tag("store", "fixed_window").gauge().value());
+		
+		// created after binding, like the store of a policy on its first request
+		stores.createLong("fixed_window:policy", currentTime -> 0L, (state, currentTime) -> 0L).cell("a", 0);
+		assertEquals(1.0, registry.get("ratelimiter.store.size").tag("store", "fixed_window:policy").gauge().value());
+	}
+}
@@ -0,0 +1,110 @@
+package com.project.rate_limiter.policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.service.FixedSizeRateLimiterService;
+import com.project.rate_limiter.service.GcraRateLimiterService;
+import com.project.rate_limiter.service.RateLimiterService;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+class PolicyEngineTests {
+
+	private static final long NOW = 1_700_000_000_000L;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void mostSpecificRouteMethodAndTenantWins() throws Exception {
+		PolicyEngine engine = engine(write("""
+				{"policies": [
+				  {"name": "api", "route": "/limiter/api/**", "algorithm": "GCRA", "limit": 10, "refillRate": 1},
+				  {"name": "users", "route": "/limiter/api/users/*", "algorithm": "GCRA", "limit": 20, "refillRate": 1, "cost": 5},
+				  {"name": "me", "route": "/limiter/api/users/me", "method": "GET", "algorithm": "GCRA", "limit": 30, "refillRate": 1},
+				  {"name": "acme", "tenant": "acme", "route": "/limiter/api/users/*", "algorithm": "FIXED_WINDOW", "limit": 40, "windowMs": 1000}
+				]}
+				"""), services());
+		
+		assertEquals("me", engine.resolve(null, "/limiter/api/users/me", "GET").name());
+		assertEquals("users", engine.resolve(null, "/limiter/api/users/me", "POST").name());
+		assertEquals("users", engine.resolve(null, "/limiter/api/users/42", "GET").name());
+		assertEquals(5, engine.resolve(null, "/limiter/api/users/42", "GET").cost());
+		assertEquals(0, engine.resolve(null, "/limiter/api", "GET").cost());
+		assertEquals("api", engine.resolve(null, "/limiter/api/users/42/orders", "GET").name());
+		assertEquals("api", engine.resolve(null, "/limiter/api", "GET").name());
+		assertEquals("acme", engine.resolve("acme", "/limiter/api/users/me", "GET").name());
+		assertEquals("api", engine.resolve("acme", "/limiter/api/check", "GET").name());
+		assertNull(engine.resolve(null, "/other", "GET"));
+	}
+
+	@Test
+	void reloadKeepsKeyStateAndRejectsBrokenFiles() throws Exception {
+		List<RateLimiterService> services = services();
+		RateLimiterService fixedWindow = services.get(0);
+		Path file = write("""
+				{"policies": [{"name": "api", "route": "/**", "algorithm": "FIXED_WINDOW", "limit": 2, "windowMs": 60000}]}
+				""");
+		PolicyEngine engine = engine(file, services);
+		DecisionResult result = new DecisionResult();
+		
+		RateLimitPolicy policy = engine.resolve(null, "/limiter/api/check", "GET");
+		assertTrue(fixedWindow.decide("user", NOW, 1, policy, result).isAllowed());
+		assertTrue(fixedWindow.decide("user", NOW, 1, policy, result).isAllowed());
+		assertFalse(fixedWindow.decide("user", NOW, 1, policy, result).isAllowed());
+		
+		rewrite(file, """
+				{"policies": [{"name": "api", "route": "/**", "algorithm": "FIXED_WINDOW", "limit": 3, "windowMs": 60000}]}
+				""");
+		engine.reloadIfChanged();
+		
+		// the two earlier requests still count against the raised limit
+		policy = engine.resolve(null, "/limiter/api/check", "GET");
+		assertEquals(3, policy.limit());
+		assertTrue(fixedWindow.decide("user", NOW, 1, policy, result).isAllowed());
+		assertEquals(0, result.remaining());
+		assertFalse(fixedWindow.decide("user", NOW, 1, policy, result).isAllowed());
+		
+		rewrite(file, """
+				{"policies": [{"name": "api", "route": "/**", "algorithm": "FIXED_WINDOW", "limit": 0, "windowMs": 60000}]}
+				""");
+		engine.reloadIfChanged();
+		assertEquals(3, engine.resolve(null, "/limiter/api/check", "GET").limit());
+	}
+
+	private Path write(String json) throws Exception {
+		Path file = directory.resolve("policies.json");
+		Files.writeString(file, json);
+		return file;
+	}
+
+	private static void rewrite(Path file, String json) throws Exception {
+		FileTime previous = Files.getLastModifiedTime(file);
+		Files.writeString(file, json);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + 1_000));
+	}
+
+	private static PolicyEngine engine(Path file, List<RateLimiterService> services) {
+		return new PolicyEngine(file.toString(), new ObjectMapper(), services);
+	}
+
+	private static List<RateLimiterService> services() {
+		KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 100, 1 << 12, 8, "");
+		CoarseClock clock = new CoarseClock(0);
+		return List.of(new FixedSizeRateLimiterService(stores, clock), new GcraRateLimiterService(stores, clock));
+	}
+}
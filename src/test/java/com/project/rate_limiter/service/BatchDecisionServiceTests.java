@@ -0,0 +1,166 @@
+package com.project.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.cluster.ClusterRouter;
+import com.project.rate_limiter.cluster.GossipCounters;
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.controller.dto.BatchCheck;
+import com.project.rate_limiter.controller.dto.BatchDecisionResponse;
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.monitoring.DecisionMetrics;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+class BatchDecisionServiceTests {
+
+	private static final int LIMIT = 10;
+	private static final long NOW = 1_700_000_000_000L;
+	private static final CoarseClock CLOCK = new CoarseClock(0);
+
+	@Test
+	void allOrNothingRefundsAdmittedChecksWhenOneIsDenied() {
+		BatchDecisionService batch = batch();
+		for(RateLimiterAlgorithm algorithm: RateLimiterAlgorithm.values()) {
+			String alg = algorithm.name();
+			
+			assertTrue(batch.decide(List.of(new BatchCheck("org", alg, 1)), false).allowed(), alg);
+			BatchDecisionResponse denied = batch.decide(List.of(
+					new BatchCheck("user", alg, 4), 
+					new BatchCheck("org", alg, LIMIT)), true);
+			assertFalse(denied.allowed(), alg);
+			assertTrue(denied.decisions().get(0).isAllowed(), alg);
+			assertFalse(denied.decisions().get(1).isAllowed(), alg);
+			
+			// the 4 units taken by the first check were given back
+			BatchDecisionResponse full = batch.decide(List.of(new BatchCheck("user", alg, LIMIT)), true);
+			assertTrue(full.allowed(), alg);
+			assertEquals(0, full.decisions().get(0).remaining(), alg);
+		}
+	}
+
+	@Test
+	void weightedCostIsConsumedAtOnce() {
+		BatchDecisionService batch = batch();
+		
+		assertEquals(3, batch.decide(List.of(new BatchCheck("user", "FIXED_WINDOW", 7)), false)
+				.decisions().get(0).remaining());
+		
+		BatchDecisionResponse tooExpensive = batch.decide(List.of(new BatchCheck("user", "FIXED_WINDOW", 4)), false);
+		assertFalse(tooExpensive.allowed());
+		assertEquals(3, tooExpensive.decisions().get(0).remaining());
+		
+		assertTrue(batch.decide(List.of(new BatchCheck("user", "FIXED_WINDOW", 3)), false).allowed());
+	}
+
+	@Test
+	void weightedCostReachesNonRefundableServices() {
+		AtomicInteger charged = new AtomicInteger();
+		RateLimiterService remote = new RateLimiterService() {
+			@Override
+			public RateLimiterAlgorithm algorithm() {
+				return RateLimiterAlgorithm.TOKEN_BUCKET;
+			}
+			@Override
+			public RateLimiterDecision decision(String user) {
+				return decision(user, NOW);
+			}
+			@Override
+			public RateLimiterDecision decision(String user, long currentTime) {
+				charged.incrementAndGet();
+				return new RateLimiterDecision(true, 0, 0L, 0L);
+			}
+			@Override
+			public DecisionResult decide(String user, int cost, DecisionResult result) {
+				charged.addAndGet(cost);
+				return result.set(true, 0, 0L, 0L);
+			}
+		};
+		KeyStateStoreRegistry stores = stores();
+		BatchDecisionService batch = new BatchDecisionService(List.of(remote), CLOCK, new DecisionMetrics(true, 1, 8, stores), 
+				cluster(stores));
+		ReflectionTestUtils.setField(batch, "MAX_CHECKS", 32);
+		ReflectionTestUtils.setField(batch, "REQUEST_LIMIT", LIMIT);
+		
+		assertTrue(batch.decide(List.of(new BatchCheck("user", "TOKEN_BUCKET", 7)), false).allowed());
+		assertEquals(7, charged.get());
+	}
+
+	@Test
+	void hugeCostIsDeniedWithoutWrappingAround() {
+		DecisionResult result = new DecisionResult();
+		for(RateLimiterService service: services(stores())) {
+			String alg = service.algorithm().name();
+			assertTrue(service.decide("user", NOW, LIMIT, result).isAllowed(), alg);
+			assertFalse(service.decide("user", NOW, Integer.MAX_VALUE, result).isAllowed(), alg);
+			assertEquals(0, result.remaining(), alg);
+			assertFalse(service.decide("user", NOW, 1, result).isAllowed(), alg);
+		}
+	}
+
+	@Test
+	void rejectsInvalidChecks() {
+		BatchDecisionService batch = batch();
+		
+		assertThrows(IllegalArgumentException.class, 
+				() -> batch.decide(List.of(new BatchCheck("user", "GCRA", 0)), false));
+		assertThrows(IllegalArgumentException.class, 
+				() -> batch.decide(List.of(new BatchCheck("user", "GCRA", LIMIT + 1)), false));
+		assertThrows(IllegalArgumentException.class, 
+				() -> batch.decide(List.of(new BatchCheck("user", "LEAKY", 1)), false));
+		assertThrows(IllegalArgumentException.class, 
+				() -> batch.decide(List.of(new BatchCheck(" ", "GCRA", 1)), false));
+	}
+
+	private static BatchDecisionService batch() {
+		KeyStateStoreRegistry stores = stores();
+		BatchDecisionService batch = new BatchDecisionService(services(stores), CLOCK, new DecisionMetrics(true, 1, 8, stores), 
+				cluster(stores));
+		ReflectionTestUtils.setField(batch, "MAX_CHECKS", 32);
+		ReflectionTestUtils.setField(batch, "REQUEST_LIMIT", LIMIT);
+		return batch;
+	}
+
+	private static ClusterRouter cluster(KeyStateStoreRegistry stores) {
+		return new ClusterRouter("", "", ClusterRouter.Mode.PARTITIONED, 128, 200L, 5_000L, CLOCK, new GossipCounters("", "", stores));
+	}
+
+	private static KeyStateStoreRegistry stores() {
+		return new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 100, 1 << 12, 8, "");
+	}
+
+	private static List<RateLimiterService> services(KeyStateStoreRegistry stores) {
+		List<RateLimiterService> services = List.of(
+				new FixedSizeRateLimiterService(stores, CLOCK),
+				new SlidingWindowRateLimiterService(stores, CLOCK),
+				new SlidingWindowCounterRateLimiterService(stores, CLOCK),
+				new TokenBucketRateLimiterService(stores, CLOCK),
+				new GcraRateLimiterService(stores, CLOCK),
+				new CompositeRateLimiterService(stores, CLOCK, LIMIT + "/60000," + LIMIT + "@1"));
+		for(RateLimiterService service: services) {
+			switch(service.algorithm()) {
+				case COMPOSITE -> {}
+				case TOKEN_BUCKET, GCRA -> {
+					ReflectionTestUtils.setField(service, "CAPACITY", LIMIT);
+					ReflectionTestUtils.setField(service, "REFILL_RATE_PER_SECOND", 1);
+				}
+				default -> {
+					ReflectionTestUtils.setField(service, "REQUEST_LIMIT", LIMIT);
+					ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", 60_000L);
+				}
+			}
+		}
+		return services;
+	}
+}
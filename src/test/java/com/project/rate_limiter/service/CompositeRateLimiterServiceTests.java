@@ -0,0 +1,54 @@
+package com.project.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+class CompositeRateLimiterServiceTests {
+
+	private static final long NOW = 1_700_000_040_000L;
+
+	@Test
+	void deniedRequestsConsumeFromNoComponent() {
+		// 2 per second and 3 per minute
+		CompositeRateLimiterService service = service("2/1000,3/60000");
+		
+		assertTrue(service.decision("user", NOW).isAllowed());
+		RateLimiterDecision second = service.decision("user", NOW);
+		assertTrue(second.isAllowed());
+		assertEquals(0, second.remaining());
+		
+		// the per-second window denies, so the minute window must not be charged
+		for(int i=0; i<5; i++) {
+			assertFalse(service.decision("user", NOW + 10).isAllowed());
+		}
+		
+		assertTrue(service.decision("user", NOW + 2_000).isAllowed());
+		RateLimiterDecision minute = service.decision("user", NOW + 4_000);
+		assertFalse(minute.isAllowed());
+		assertTrue(minute.retryAfterMs() > 1_000, "retry follows the minute window");
+	}
+
+	@Test
+	void reportsTheMostRestrictiveComponent() {
+		// a bucket of 10 refilled at 1/s and 4 per minute
+		CompositeRateLimiterService service = service("10@1,4/60000");
+		
+		RateLimiterDecision first = service.decision("user", NOW);
+		assertTrue(first.isAllowed());
+		assertEquals(3, first.remaining());
+		assertEquals(60_000 + (60_000 - NOW % 60_000), first.timeToFullMs());
+	}
+
+	private static CompositeRateLimiterService service(String limits) {
+		KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 100, 1 << 12, 8, "");
+		return new CompositeRateLimiterService(stores, new CoarseClock(0), limits);
+	}
+}
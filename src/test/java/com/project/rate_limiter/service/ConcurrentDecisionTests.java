@@ -0,0 +1,113 @@
+package com.project.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.rate_limiter.clock.CoarseClock;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+class ConcurrentDecisionTests {
+
+	private static final int LIMIT = 1_000;
+	private static final int THREADS = 16;
+	private static final int CALLS_PER_THREAD = 500;
+	private static final long NOW = 1_700_000_000_000L;
+	private static final CoarseClock CLOCK = new CoarseClock(0);
+
+	@Test
+	void fixedWindowAdmitsExactlyLimitUnderContention() throws Exception {
+		FixedSizeRateLimiterService service = new FixedSizeRateLimiterService(stores(), CLOCK);
+		ReflectionTestUtils.setField(service, "REQUEST_LIMIT", LIMIT);
+		ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", 60_000L);
+
+		assertEquals(LIMIT, countAllowed(key -> service.decision(key, NOW).isAllowed()));
+	}
+
+	@Test
+	void slidingWindowAdmitsExactlyLimitUnderContention() throws Exception {
+		SlidingWindowRateLimiterService service = new SlidingWindowRateLimiterService(stores(), CLOCK);
+		ReflectionTestUtils.setField(service, "REQUEST_LIMIT", LIMIT);
+		ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", 60_000L);
+
+		assertEquals(LIMIT, countAllowed(key -> service.decision(key, NOW).isAllowed()));
+	}
+
+	@Test
+	void slidingWindowCounterAdmitsExactlyLimitUnderContention() throws Exception {
+		SlidingWindowCounterRateLimiterService service = new SlidingWindowCounterRateLimiterService(stores(), CLOCK);
+		ReflectionTestUtils.setField(service, "REQUEST_LIMIT", LIMIT);
+		ReflectionTestUtils.setField(service, "TIME_WINDOW_MS", 60_000L);
+
+		assertEquals(LIMIT, countAllowed(key -> service.decision(key, NOW).isAllowed()));
+	}
+
+	@Test
+	void tokenBucketAdmitsExactlyCapacityUnderContention() throws Exception {
+		TokenBucketRateLimiterService service = new TokenBucketRateLimiterService(stores(), CLOCK);
+		ReflectionTestUtils.setField(service, "CAPACITY", LIMIT);
+		ReflectionTestUtils.setField(service, "REFILL_RATE_PER_SECOND", 1);
+
+		assertEquals(LIMIT, countAllowed(key -> service.decision(key, NOW).isAllowed()));
+	}
+
+	@Test
+	void gcraAdmitsExactlyCapacityUnderContention() throws Exception {
+		GcraRateLimiterService service = new GcraRateLimiterService(stores(), CLOCK);
+		ReflectionTestUtils.setField(service, "CAPACITY", LIMIT);
+		ReflectionTestUtils.setField(service, "REFILL_RATE_PER_SECOND", 1);
+
+		assertEquals(LIMIT, countAllowed(key -> service.decision(key, NOW).isAllowed()));
+	}
+
+	@Test
+	void compositeAdmitsExactlyTightestLimitUnderContention() throws Exception {
+		CompositeRateLimiterService service = new CompositeRateLimiterService(stores(), CLOCK, 
+				"5000/1000," + LIMIT + "/60000,2000@1");
+
+		assertEquals(LIMIT, countAllowed(key -> service.decision(key, NOW).isAllowed()));
+	}
+
+	private static KeyStateStoreRegistry stores() {
+		return new KeyStateStoreRegistry(StoreMode.HEAP, 1_000_000, 5, 10_000, 1 << 16, 8, "");
+	}
+
+	private int countAllowed(Predicate<String> decision) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for(int t=0; t<THREADS; t++) {
+				Callable<Integer> worker = () -> {
+					start.await();
+					int allowed = 0;
+					for(int i=0; i<CALLS_PER_THREAD; i++) {
+						if(decision.test("shared_user")) { allowed++; }
+					}
+					return allowed;
+				};
+				results.add(pool.submit(worker));
+			}
+			start.countDown();
+
+			int allowed = 0;
+			for(Future<Integer> result: results) {
+				allowed += result.get();
+			}
+			return allowed;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.project.rate_limiter.service.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.rate_limiter.entity.DecisionResult;
+import com.project.rate_limiter.entity.RateLimiterDecision;
+import com.project.rate_limiter.store.KeyStateStoreRegistry;
+import com.project.rate_limiter.store.StoreMode;
+
+import redis.embedded.RedisServer;
+
+/**
+ * Runs the decision scripts against a local redis-server process.
+ */
+class RedisRateLimiterServiceTests {
+
+	private static final long NOW = 1_700_000_000_000L;
+
+	private static RedisServer server;
+	private static LettuceConnectionFactory connectionFactory;
+	private static StringRedisTemplate template;
+	private static RedisScriptExecutor redis;
+	private static RedisScriptExecutor batchingRedis;
+
+	@BeforeAll
+	static void startRedis() throws IOException {
+		int port;
+		try(ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		server = new RedisServer(port);
+		server.start();
+
+		connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+		connectionFactory.afterPropertiesSet();
+		template = new StringRedisTemplate(connectionFactory);
+		redis = new RedisScriptExecutor(template, false, 1, 0, 1, ForkJoinPool.commonPool());
+		batchingRedis = new RedisScriptExecutor(template, true, 32, 500, 2, ForkJoinPool.commonPool());
+	}
+
+	@AfterAll
+	static void stopRedis() throws IOException {
+		batchingRedis.destroy();
+		connectionFactory.destroy();
+		server.stop();
+	}
+
+	@Test
+	void fixedWindowBlocksAfterLimitAndResetsWithTheWindow() {
+		RedisFixedWindowRateLimiterService service = new RedisFixedWindowRateLimiterService(redis);
+		configure(service, "REQUEST_LIMIT", 3, "TIME_WINDOW_MS", 6_000L);
+
+		for(int i=0; i<3; i++) {
+			assertTrue(service.decision("fixed_user", NOW).isAllowed());
+		}
+		RateLimiterDecision blocked = service.decision("fixed_user", NOW + 1_000);
+
+		assertFalse(blocked.isAllowed());
+		assertEquals(5_000, blocked.retryAfterMs());
+		assertTrue(service.decision("fixed_user", NOW + 6_001).isAllowed());
+	}
+
+	@Test
+	void slidingWindowFreesCapacityAsRequestsAgeOut() {
+		RedisSlidingWindowRateLimiterService service = new RedisSlidingWindowRateLimiterService(redis);
+		configure(service, "REQUEST_LIMIT", 2, "TIME_WINDOW_MS", 1_000L);
+
+		assertTrue(service.decision("sliding_user", NOW).isAllowed());
+		assertTrue(service.decision("sliding_user", NOW + 500).isAllowed());
+		RateLimiterDecision blocked = service.decision("sliding_user", NOW + 600);
+
+		assertFalse(blocked.isAllowed());
+		assertEquals(400, blocked.retryAfterMs());
+		assertTrue(service.decision("sliding_user", NOW + 1_001).isAllowed());
+	}
+
+	@Test
+	void tokenBucketRefillsWholeSeconds() {
+		RedisTokenBucketRateLimiterService service = new RedisTokenBucketRateLimiterService(redis);
+		configure(service, "CAPACITY", 2, "REFILL_RATE_PER_SECOND", 1);
+
+		assertEquals(1, service.decision("token_user", NOW).remaining());
+		assertEquals(0, service.decision("token_user", NOW).remaining());
+		assertFalse(service.decision("token_user", NOW + 999).isAllowed());
+		assertTrue(service.decision("token_user", NOW + 1_000).isAllowed());
+	}
+
+	@Test
+	void batchedDecisionsAreExactUnderContention() throws Exception {
+		RedisFixedWindowRateLimiterService service = new RedisFixedWindowRateLimiterService(batchingRedis);
+		configure(service, "REQUEST_LIMIT", 100, "TIME_WINDOW_MS", 60_000L);
+
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for(int i=0; i<400; i++) {
+				results.add(pool.submit(() -> service.decision("batched_user", NOW).isAllowed()));
+			}
+			int allowed = 0;
+			for(Future<Boolean> result: results) {
+				if(result.get()) { allowed++; }
+			}
+			assertEquals(100, allowed);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void weightedCostIsConsumedAtOnce() {
+		DecisionResult result = new DecisionResult();
+		RedisFixedWindowRateLimiterService fixed = new RedisFixedWindowRateLimiterService(redis);
+		configure(fixed, "REQUEST_LIMIT", 5, "TIME_WINDOW_MS", 6_000L);
+		assertEquals(2, fixed.decide("weighted_fixed", NOW, 3, result).remaining());
+		assertFalse(fixed.decide("weighted_fixed", NOW, 3, result).isAllowed());
+		assertEquals(2, result.remaining());
+		assertTrue(fixed.decide("weighted_fixed", NOW, 2, result).isAllowed());
+
+		RedisSlidingWindowRateLimiterService sliding = new RedisSlidingWindowRateLimiterService(redis);
+		configure(sliding, "REQUEST_LIMIT", 5, "TIME_WINDOW_MS", 1_000L);
+		assertTrue(sliding.decide("weighted_sliding", NOW, 2, result).isAllowed());
+		assertTrue(sliding.decide("weighted_sliding", NOW + 500, 3, result).isAllowed());
+		// room for 3 more only once the units admitted at NOW + 500 have left the window
+		assertFalse(sliding.decide("weighted_sliding", NOW + 600, 3, result).isAllowed());
+		assertEquals(900, result.retryAfterMs());
+
+		RedisTokenBucketRateLimiterService token = new RedisTokenBucketRateLimiterService(redis);
+		configure(token, "CAPACITY", 5, "REFILL_RATE_PER_SECOND", 1);
+		assertTrue(token.decide("weighted_token", NOW, 5, result).isAllowed());
+		assertFalse(token.decide("weighted_token", NOW + 2_000, 3, result).isAllowed());
+		assertEquals(2, result.remaining());
+		assertEquals(1_000, result.retryAfterMs());
+	}
+
+	@Test
+	void weightedDecisionsWithoutATimeUseTheRedisClock() {
+		RedisSlidingWindowRateLimiterService sliding = new RedisSlidingWindowRateLimiterService(redis);
+		configure(sliding, "REQUEST_LIMIT", 5, "TIME_WINDOW_MS", 60_000L);
+		assertTrue(sliding.decide("server_clock", 3, new DecisionResult()).isAllowed());
+
+		// every unit is stamped by the server, as cost-1 decisions are
+		long serverNow = template.execute((RedisCallback<Long>) connection -> connection.serverCommands().time());
+		String key = RedisDecisionScript.key((String) ReflectionTestUtils.getField(sliding, "keyPrefix"), "sliding", "server_clock");
+		Set<TypedTuple<String>> units = template.opsForZSet().rangeWithScores(key, 0, -1);
+		assertEquals(3, units.size());
+		for(TypedTuple<String> unit: units) {
+			assertTrue(unit.getScore() <= serverNow && unit.getScore() > serverNow - 5_000, unit.toString());
+		}
+	}
+
+	@Test
+	void asyncDecisionsDoNotWaitOnTheCaller() {
+		for(RedisScriptExecutor executor: List.of(redis, batchingRedis)) {
+			RedisFixedWindowRateLimiterService service = new RedisFixedWindowRateLimiterService(executor);
+			configure(service, "REQUEST_LIMIT", 5, "TIME_WINDOW_MS", 60_000L);
+			String user = "async_user_" + System.nanoTime();
+
+			List<CompletableFuture<RateLimiterDecision>> decisions = new ArrayList<>();
+			for(int i=0; i<20; i++) {
+				decisions.add(service.decisionAsync(user));
+			}
+			assertEquals(5, decisions.stream().filter(decision -> decision.join().isAllowed()).count());
+		}
+	}
+
+	@Test
+	void leasingNodesShareOneBucketWithoutOverAdmission() {
+		String prefix = "test_" + System.nanoTime();
+		LeasingTokenBucketRateLimiterService first = leasingNode(prefix);
+		LeasingTokenBucketRateLimiterService second = leasingNode(prefix);
+
+		int allowed = 0;
+		for(int i=0; i<40; i++) {
+			LeasingTokenBucketRateLimiterService node = (i % 2 == 0) ? first : second;
+			if(node.decision("leased_user", NOW + i).isAllowed()) { allowed++; }
+		}
+
+		assertEquals(10, allowed);
+	}
+
+	@Test
+	void expiredLeaseGivesUnusedTokensBack() {
+		String prefix = "test_" + System.nanoTime();
+		LeasingTokenBucketRateLimiterService first = leasingNode(prefix);
+		LeasingTokenBucketRateLimiterService second = leasingNode(prefix);
+
+		// the request rate of the first node makes its second lease take 5 tokens, 3 stay unused
+		first.decision("leased_user", NOW);
+		first.decision("leased_user", NOW + 100);
+		first.decision("leased_user", NOW + 200);
+
+		assertEquals(4, countAllowed(second, NOW + 300));
+
+		// the virtual timestamps are far in the past, so the first node's lease counts as expired
+		first.returnExpiredLeases();
+
+		assertEquals(3, countAllowed(second, NOW + 400));
+	}
+
+	private static int countAllowed(LeasingTokenBucketRateLimiterService node, long currentTime) {
+		int allowed = 0;
+		for(int i=0; i<10; i++) {
+			if(node.decision("leased_user", currentTime).isAllowed()) { allowed++; }
+		}
+		return allowed;
+	}
+
+	private static LeasingTokenBucketRateLimiterService leasingNode(String prefix) {
+		KeyStateStoreRegistry stores = new KeyStateStoreRegistry(StoreMode.HEAP, 1_000, 5, 1_000, 1 << 10, 1, "");
+		LeasingTokenBucketRateLimiterService node = new LeasingTokenBucketRateLimiterService(redis, stores);
+		ReflectionTestUtils.setField(node, "CAPACITY", 10);
+		ReflectionTestUtils.setField(node, "REFILL_RATE_PER_SECOND", 1);
+		ReflectionTestUtils.setField(node, "MAX_LEASE_SIZE", 5);
+		ReflectionTestUtils.setField(node, "LEASE_TTL_MS", 1_000L);
+		ReflectionTestUtils.setField(node, "keyPrefix", prefix);
+		return node;
+	}
+
+	private static void configure(Object service, String limitField, Object limit, String rateField, Object rate) {
+		ReflectionTestUtils.setField(service, limitField, limit);
+		ReflectionTestUtils.setField(service, rateField, rate);
+		ReflectionTestUtils.setField(service, "keyPrefix", "test_" + System.nanoTime());
+	}
+}
@@ -0,0 +1,42 @@
+package com.project.rate_limiter.shaping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTests {
+
+	@Test
+	void tasksRunOnceAndNeverBeforeTheirDelay() throws Exception {
+		int tasks = 2_000;
+		CountDownLatch done = new CountDownLatch(tasks);
+		AtomicInteger early = new AtomicInteger();
+		// 16 buckets of 5 ms: delays up to 300 ms go several turns around the wheel
+		try(TimerWheel wheel = new TimerWheel(5L, 16, "test-wheel")) {
+			for(int i=0; i<tasks; i++) {
+				long delayMs = ThreadLocalRandom.current().nextLong(300);
+				long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+				wheel.schedule(delayMs, () -> {
+					if(System.nanoTime() < due) {
+						early.incrementAndGet();
+					}
+					done.countDown();
+				});
+			}
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+		}
+		assertEquals(0, early.get());
+	}
+
+	@Test
+	void sizeMustBeAPowerOfTwo() {
+		assertThrows(IllegalArgumentException.class, () -> new TimerWheel(10L, 100, "test-wheel"));
+	}
+}
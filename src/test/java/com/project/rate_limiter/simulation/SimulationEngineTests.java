@@ -0,0 +1,77 @@
+package com.project.rate_limiter.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.project.rate_limiter.constants.RateLimiterAlgorithm;
+import com.project.rate_limiter.policy.RateLimitPolicy;
+import com.project.rate_limiter.store.PackedState;
+
+class SimulationEngineTests {
+
+	private static final int LIMIT = 5;
+	private static final long WINDOW_MS = 6_000L;
+
+	@Test
+	void boundaryBurstDoubleDipsOnlyWithFixedWindow() {
+		SimulationEngine engine = engine(1_000);
+		TrafficPattern traffic = TrafficPattern.merge(List.of(
+				TrafficPattern.burst(1, 0),
+				TrafficPattern.burst(LIMIT + 1, WINDOW_MS - 200),
+				TrafficPattern.burst(LIMIT, WINDOW_MS + 50)));
+
+		SimulationResult fixed = engine.run(simulation(RateLimiterAlgorithm.FIXED_WINDOW, traffic, 1));
+		SimulationResult counter = engine.run(simulation(RateLimiterAlgorithm.SLIDING_WINDOW_COUNTER, traffic, 1));
+
+		assertEquals(2 * LIMIT + 2, fixed.events());
+		assertEquals(2 * LIMIT, fixed.allowed());
+		assertTrue(counter.allowed() < fixed.allowed());
+		assertEquals(fixed.timeline(), engine.run(simulation(RateLimiterAlgorithm.FIXED_WINDOW, traffic, 1)).timeline());
+	}
+
+	@Test
+	void poissonRunOfAMillionEventsAdmitsTheRefillRate() {
+		SimulationEngine engine = engine(10_000_000);
+		// 1000 req/s offered for 1000 s to a bucket refilling 100/s
+		TrafficPattern traffic = TrafficPattern.poisson(1_000, 0, 1_000_000);
+		RateLimitPolicy policy = new RateLimitPolicy("gcra", RateLimiterAlgorithm.GCRA, 100, 0, 100, List.of());
+
+		SimulationResult result = engine.run(new Simulation(policy, traffic, List.of(), "user", 1, 42L, 0));
+
+		assertTrue(Math.abs(result.events() - 1_000_000) < 5_000);
+		assertEquals(100.0, result.admittedPerSecond(), 1.0);
+		assertFalse(result.truncated());
+		assertEquals(result.events(), engine.run(new Simulation(policy, traffic, List.of(), "user", 1, 42L, 0)).events());
+	}
+
+	@Test
+	void rejectsTooManyKeysAndLimitsBeyondThePackedCount() {
+		SimulationEngine engine = engine(1_000);
+		TrafficPattern traffic = TrafficPattern.burst(10, 0);
+		assertThrows(IllegalArgumentException.class, 
+				() -> engine.run(simulation(RateLimiterAlgorithm.FIXED_WINDOW, traffic, 2_000_000_000)));
+		
+		RateLimitPolicy huge = new RateLimitPolicy("huge", RateLimiterAlgorithm.TOKEN_BUCKET, PackedState.MAX_COUNT + 1, 0L, 1, List.of());
+		assertThrows(IllegalArgumentException.class, 
+				() -> engine.run(new Simulation(huge, traffic, List.of(), "user", 1, 7L, 100)));
+	}
+
+	private static Simulation simulation(RateLimiterAlgorithm algorithm, TrafficPattern traffic, int keys) {
+		RateLimitPolicy policy = new RateLimitPolicy(algorithm.name(), algorithm, LIMIT, WINDOW_MS, 1, List.of());
+		return new Simulation(policy, traffic, List.of(), "user", keys, 7L, 100);
+	}
+
+	private static SimulationEngine engine(long maxEvents) {
+		SimulationEngine engine = new SimulationEngine();
+		ReflectionTestUtils.setField(engine, "MAX_EVENTS", maxEvents);
+		ReflectionTestUtils.setField(engine, "MAX_KEYS", 100_000);
+		return engine;
+	}
+}
@@ -0,0 +1,62 @@
+package com.project.rate_limiter.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.rate_limiter.clock.CoarseClock;
+
+class CountMinSketchTests {
+
+	private static final long NOW = 1_700_000_040_000L;
+
+	@Test
+	void estimatesNeverUndercountAndDecayWithTheWindow() {
+		CountMinSketch sketch = new CountMinSketch(1024, 4, 1_000L, NOW);
+		for(int i=0; i<100; i++) {
+			sketch.add("heavy", NOW);
+		}
+		// a spray of one-off keys much larger than the sketch
+		for(int i=0; i<100_000; i++) {
+			sketch.add("10.0." + (i >> 8) + "." + (i & 255), NOW);
+		}
+
+		assertTrue(sketch.estimate("heavy", NOW) >= 100);
+		assertTrue(sketch.estimate("heavy", NOW + 1_500) < sketch.estimate("heavy", NOW));
+		assertEquals(0, sketch.estimate("heavy", NOW + 2_000));
+	}
+
+	@Test
+	void gateKeepsSprayedKeysOutOfExactState() {
+		HeavyHitterGate gate = new HeavyHitterGate(true, 2, 60_000L, 65_536, 4, 8, new CoarseClock(0));
+
+		int exact = 0;
+		for(int i=0; i<10_000; i++) {
+			if(gate.lightRemaining("10.1." + (i >> 8) + "." + (i & 255)) < 0) {
+				exact++;
+			}
+		}
+		for(int i=0; i<200; i++) {
+			gate.lightRemaining("attacker");
+		}
+
+		assertTrue(exact < 10);
+		assertEquals(-1, gate.lightRemaining("attacker"));
+		assertEquals("attacker", gate.heavyHitters(1).get(0).key());
+	}
+
+	@Test
+	void keysWithCollidingHashCodesLandApart() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		long seed = 0x9E3779B97F4A7C15L;
+		assertTrue(CountMinSketch.hash("Aa", seed) != CountMinSketch.hash("BB", seed));
+
+		CountMinSketch sketch = new CountMinSketch(1024, 4, 1_000L, NOW);
+		for(int i=0; i<100; i++) {
+			sketch.add("AaAaAaAa", NOW);
+		}
+		// same String.hashCode, almost surely apart in at least one of the four rows
+		assertTrue(sketch.estimate("BBBBBBBB", NOW) < 100);
+	}
+}
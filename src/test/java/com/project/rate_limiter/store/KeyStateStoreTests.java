@@ -0,0 +1,61 @@
+package com.project.rate_limiter.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class KeyStateStoreTests {
+
+	// state holds the time at which the key is full again
+	private static KeyStateStore<AtomicLong> store(int maxKeys) {
+		return new KeyStateStore<>("test", currentTime -> new AtomicLong(currentTime + 1_000),
+				(state, currentTime) -> state.get(), maxKeys, 5);
+	}
+
+	@Test
+	void sweepDropsOnlyKeysThatAreFullAgain() {
+		KeyStateStore<AtomicLong> store = store(100);
+		store.get("idle", 0);
+		AtomicLong active = store.get("active", 5_000);
+
+		store.sweep(2_000, 100);
+
+		assertEquals(1, store.size());
+		assertEquals(1, store.stats().idleEvictions());
+		assertSame(active, store.get("active", 2_000));
+	}
+
+	@Test
+	void insertBeyondMaxKeysEvictsClosestToFull() {
+		KeyStateStore<AtomicLong> store = store(3);
+		store.get("a", 100);
+		store.get("b", 0);
+		store.get("c", 200);
+
+		store.get("d", 300);
+
+		assertEquals(3, store.size());
+		assertEquals(1, store.stats().capacityEvictions());
+		// "b" was the one closest to full, so asking again creates a fresh state
+		assertEquals(1_500, store.get("b", 500).get());
+	}
+
+	@Test
+	void sweepResumesWhereThePreviousOneStopped() {
+		KeyStateStore<AtomicLong> store = store(1_000);
+		for(int i=0; i<100; i++) {
+			store.get("key-" + i, 0);
+		}
+
+		for(int i=0; i<10; i++) {
+			store.sweep(5_000, 10);
+		}
+
+		assertEquals(0, store.size());
+		assertTrue(store.stats().evictionsPerSecond() >= 0);
+	}
+}
@@ -0,0 +1,91 @@
+package com.project.rate_limiter.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffHeapLongStateStoreTests {
+
+	// state is the time at which the key is full again
+	private static OffHeapLongStateStore store(int slots, int maxKeys, Path file) {
+		return new OffHeapLongStateStore("test", currentTime -> currentTime + 1_000, 
+				(state, currentTime) -> state, slots, 4, maxKeys, 5, file);
+	}
+
+	@Test
+	void sweepKeepsEveryRemainingKeyReachable() {
+		OffHeapLongStateStore store = store(4_096, 3_000, null);
+		for(int i=0; i<2_000; i++) {
+			// odd keys stay active far longer
+			store.cell("key-" + i, (i % 2 == 0) ? 0 : 10_000);
+		}
+
+		store.sweep(5_000, 10_000);
+
+		assertEquals(1_000, store.size());
+		for(int i=1; i<2_000; i+=2) {
+			assertEquals(11_000, store.cell("key-" + i, 5_000).get());
+		}
+		assertEquals(1_000, store.size());
+	}
+
+	@Test
+	void concurrentCasUpdatesAreNotLost() throws Exception {
+		OffHeapLongStateStore store = store(256, 100, null);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for(int t=0; t<8; t++) {
+				results.add(pool.submit(() -> {
+					for(int i=0; i<10_000; i++) {
+						LongCell cell = store.cell("key-" + (i % 10), 0);
+						long state;
+						do {
+							state = cell.get();
+						} while(!cell.compareAndSet(state, state + 1));
+					}
+				}));
+			}
+			for(Future<?> result: results) {
+				result.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		for(int k=0; k<10; k++) {
+			assertEquals(1_000 + 8_000, store.cell("key-" + k, 0).get());
+		}
+	}
+
+	@Test
+	void insertBeyondMaxKeysEvicts() {
+		OffHeapLongStateStore store = store(1_024, 100, null);
+		for(int i=0; i<500; i++) {
+			store.cell("key-" + i, i);
+		}
+
+		assertEquals(100, store.size());
+		assertEquals(400, store.stats().capacityEvictions());
+	}
+
+	@Test
+	void mappedTableSurvivesReopen(@TempDir Path directory) {
+		Path file = directory.resolve("test.table");
+		LongCell cell = store(1_024, 100, file).cell("user", 0);
+		cell.compareAndSet(cell.get(), 42);
+
+		OffHeapLongStateStore reopened = store(1_024, 100, file);
+
+		assertEquals(1, reopened.size());
+		assertEquals(42, reopened.cell("user", 0).get());
+	}
+}